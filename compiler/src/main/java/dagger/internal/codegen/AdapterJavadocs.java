@@ -30,6 +30,8 @@ public final class AdapterJavadocs {
   static final String GET_METHOD = ""
       + "Returns the fully provisioned instance satisfying the contract for\n"
       + "{@code Provider<$T>}.\n";
+  static final String PRIMITIVE_GET_METHOD = ""
+      + "Returns the provided {@code $T} without boxing it.\n";
   static final String GET_DEPENDENCIES_METHOD = ""
       + "Used internally obtain dependency information, such as for cyclical\n"
       + "graph detection.\n";
@@ -44,6 +46,20 @@ public final class AdapterJavadocs {
       + "instance provision of types served by {@code @$T} methods.\n";
   static final String STATIC_INJECTION_TYPE = ""
       + "A manager for {@code $T}'s injections into static fields.\n";
+  static final String DISPATCHING_PROVIDES_TYPE = ""
+      + "A {@code Binding} for each of the {@code @Provides} methods of {@code $T},\n"
+      + "selected by the method's index, so that the module loads a single binding class.\n";
+  static final String ASSISTED_FACTORY_TYPE = ""
+      + "A {@code Binding<$T>} whose instance creates {@code $T} instances,\n"
+      + "passing on the factory method's arguments and injecting everything else.\n";
+  static final String GRAPH_ADAPTER_TYPE = ""
+      + "Creates the adapters used by the complete graph of\n"
+      + "{@code $T}, so that they need not be loaded by name\n"
+      + "when that graph is created.\n";
+  static final String EXTENSION_GRAPH_ADAPTER_TYPE = ""
+      + "Creates the adapters which the graph extended with\n"
+      + "{@code $T} adds to the graph it extends, so that\n"
+      + "they need not be loaded by name when that graph is created.\n";
 
   /** Creates an appropriate javadoc depending on aspects of the type in question. */
   static CodeBlock bindingTypeDocs(
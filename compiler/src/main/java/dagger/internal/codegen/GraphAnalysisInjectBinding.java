@@ -15,6 +15,7 @@
  */
 package dagger.internal.codegen;
 
+import dagger.Assisted;
 import dagger.internal.Binding;
 import dagger.internal.Linker;
 import java.util.ArrayList;
@@ -24,12 +25,17 @@ import java.util.Set;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
 
+import static dagger.internal.codegen.Util.assistedParameters;
 import static dagger.internal.codegen.Util.getApplicationSupertype;
 
 /**
@@ -40,20 +46,38 @@ final class GraphAnalysisInjectBinding extends Binding<Object> {
   private final List<String> keys;
   private final Binding<?>[] bindings;
   private final String supertypeKey;
+  private final String createdMembersKey;
+  private final boolean deferred;
 
-  private GraphAnalysisInjectBinding(String provideKey, String membersKey,
-      TypeElement type, List<String> keys, String supertypeKey) {
-    super(provideKey, membersKey, type.getAnnotation(Singleton.class) != null,
-        type.getQualifiedName().toString());
-    this.type = type;
-    this.keys = keys;
+  private GraphAnalysisInjectBinding(Metadata metadata) {
+    super(metadata.provideKey, metadata.membersKey, metadata.singleton,
+        metadata.type.getQualifiedName().toString());
+    this.type = metadata.type;
+    this.keys = metadata.keys;
     this.bindings = new Binding<?>[keys.size()];
-    this.supertypeKey = supertypeKey;
+    this.supertypeKey = metadata.supertypeKey;
+    this.createdMembersKey = metadata.createdMembersKey;
+    this.deferred = metadata.deferred;
   }
 
-  static GraphAnalysisInjectBinding create(TypeElement type, boolean mustHaveInjections) {
+  static GraphAnalysisInjectBinding create(Metadata metadata, boolean mustHaveInjections) {
+    if (!metadata.hasInjections && mustHaveInjections) {
+      throw new IllegalArgumentException("No injectable members on "
+          + metadata.type.getQualifiedName().toString()
+          + ". Do you want to add an injectable constructor?");
+    }
+    return new GraphAnalysisInjectBinding(metadata);
+  }
+
+  /**
+   * Returns the keys and structure of {@code type}'s injections.
+   *
+   * @throws IllegalArgumentException if {@code type} has misplaced or conflicting annotations.
+   */
+  static Metadata analyze(TypeElement type) {
     List<String> requiredKeys = new ArrayList<String>();
     boolean hasInjectConstructor = false;
+    boolean hasAssistedConstructor = false;
     boolean hasNoArgsConstructor = false;
 
     for (Element enclosed : type.getEnclosedElements()) {
@@ -79,6 +103,11 @@ final class GraphAnalysisInjectBinding extends Binding<Object> {
                 + type.getQualifiedName().toString());
           }
           hasInjectConstructor = true;
+          if (!assistedParameters(constructor).isEmpty()) {
+            // Only the type's @AssistedFactory calls this constructor.
+            hasAssistedConstructor = true;
+            break;
+          }
           for (VariableElement parameter : parameters) {
             requiredKeys.add(GeneratorKeys.get(parameter));
           }
@@ -94,22 +123,101 @@ final class GraphAnalysisInjectBinding extends Binding<Object> {
       }
     }
 
-    if (!hasInjectConstructor && requiredKeys.isEmpty() && mustHaveInjections) {
-      throw new IllegalArgumentException("No injectable members on "
-          + type.getQualifiedName().toString() + ". Do you want to add an injectable constructor?");
-    }
-
     // Attach the supertype.
     TypeMirror supertype = getApplicationSupertype(type);
     String supertypeKey = supertype != null
         ? GeneratorKeys.rawMembersKey(supertype)
         : null;
 
-    String provideKey = hasInjectConstructor || (hasNoArgsConstructor && !requiredKeys.isEmpty())
+    String provideKey = !hasAssistedConstructor
+        && (hasInjectConstructor || (hasNoArgsConstructor && !requiredKeys.isEmpty()))
         ? GeneratorKeys.get(type.asType())
         : null;
     String membersKey = GeneratorKeys.rawMembersKey(type.asType());
-    return new GraphAnalysisInjectBinding(provideKey, membersKey, type, requiredKeys, supertypeKey);
+    boolean hasInjections = hasInjectConstructor || !requiredKeys.isEmpty();
+    return new Metadata(type, provideKey, membersKey, requiredKeys, supertypeKey, null,
+        hasInjections, false);
+  }
+
+  /**
+   * Returns the keys of the {@code @AssistedFactory} interface {@code factory}: the injected
+   * parameters of the constructor it calls and, if that class has injected members, its members
+   * key. None of them are needed until the factory is called.
+   *
+   * @throws IllegalArgumentException if {@code factory} doesn't create a class with an
+   *     {@code @Assisted} constructor.
+   */
+  static Metadata analyzeAssistedFactory(TypeElement factory) {
+    List<ExecutableElement> methods = ElementFilter.methodsIn(factory.getEnclosedElements());
+    TypeMirror returnType = methods.size() == 1 ? methods.get(0).getReturnType() : null;
+    if (returnType == null || returnType.getKind() != TypeKind.DECLARED) {
+      throw new IllegalArgumentException("Invalid @AssistedFactory "
+          + factory.getQualifiedName().toString());
+    }
+    TypeElement type = (TypeElement) ((DeclaredType) returnType).asElement();
+    List<String> requiredKeys = new ArrayList<String>();
+    List<Element> fields = new ArrayList<Element>();
+    boolean hasAssistedConstructor = false;
+    for (Element enclosed : type.getEnclosedElements()) {
+      if (!hasAtInject(enclosed) || enclosed.getModifiers().contains(Modifier.STATIC)) {
+        continue;
+      }
+      if (enclosed.getKind() == ElementKind.FIELD) {
+        fields.add(enclosed);
+      } else if (enclosed.getKind() == ElementKind.CONSTRUCTOR) {
+        for (VariableElement parameter : ((ExecutableElement) enclosed).getParameters()) {
+          if (parameter.getAnnotation(Assisted.class) == null) {
+            requiredKeys.add(GeneratorKeys.get(parameter));
+          } else {
+            hasAssistedConstructor = true;
+          }
+        }
+      }
+    }
+    if (!hasAssistedConstructor) {
+      throw new IllegalArgumentException("No @Assisted constructor on "
+          + type.getQualifiedName().toString() + " for @AssistedFactory "
+          + factory.getQualifiedName().toString());
+    }
+    String createdMembersKey = !fields.isEmpty() || getApplicationSupertype(type) != null
+        ? GeneratorKeys.rawMembersKey(type.asType())
+        : null;
+    return new Metadata(factory, GeneratorKeys.get(factory.asType()), null, requiredKeys,
+        null, createdMembersKey, true, true);
+  }
+
+  /**
+   * The immutable part of a type's binding. Unlike the binding itself, which holds linker state,
+   * this can be shared by every graph that links the type.
+   */
+  static final class Metadata {
+    final TypeElement type;
+    final String provideKey;
+    final String membersKey;
+    final List<String> keys;
+    final String supertypeKey;
+    /**
+     * The members key of the class an {@code @AssistedFactory} creates, if that class has injected
+     * members. Null for other types.
+     */
+    final String createdMembersKey;
+    final boolean singleton;
+    final boolean hasInjections;
+    /** True if the bindings of {@link #keys} are only used after the graph has been created. */
+    final boolean deferred;
+
+    Metadata(TypeElement type, String provideKey, String membersKey, List<String> keys,
+        String supertypeKey, String createdMembersKey, boolean hasInjections, boolean deferred) {
+      this.type = type;
+      this.provideKey = provideKey;
+      this.membersKey = membersKey;
+      this.keys = keys;
+      this.supertypeKey = supertypeKey;
+      this.createdMembersKey = createdMembersKey;
+      this.singleton = type.getAnnotation(Singleton.class) != null;
+      this.hasInjections = hasInjections;
+      this.deferred = deferred;
+    }
   }
 
   private static boolean hasAtInject(Element enclosed) {
@@ -130,6 +238,11 @@ final class GraphAnalysisInjectBinding extends Binding<Object> {
       // Force the binding lookup.
       linker.requestBinding(supertypeKey, requiredBy, getClass().getClassLoader(), false, true);
     }
+    if (createdMembersKey != null) {
+      // The factory injects the members of each instance it creates.
+      linker.requestBinding(
+          createdMembersKey, requiredBy, getClass().getClassLoader(), false, true);
+    }
   }
 
   @Override public Object get() {
@@ -141,6 +254,9 @@ final class GraphAnalysisInjectBinding extends Binding<Object> {
   }
 
   @Override public void getDependencies(Set<Binding<?>> get, Set<Binding<?>> injectMembers) {
+    if (deferred) {
+      return; // Like a Provider, a factory doesn't need its dependencies to be created.
+    }
     Collections.addAll(get, bindings);
   }
 }
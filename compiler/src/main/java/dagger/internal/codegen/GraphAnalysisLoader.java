@@ -16,10 +16,13 @@
 package dagger.internal.codegen;
 
 import com.google.common.annotations.VisibleForTesting;
+import dagger.AssistedFactory;
 import dagger.internal.Binding;
 import dagger.internal.Loader;
 import dagger.internal.ModuleAdapter;
 import dagger.internal.StaticInjection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.TypeElement;
@@ -30,10 +33,16 @@ import javax.lang.model.util.Elements;
  * this {@code Binding.Resolver} have the correct dependency graph, but do not implement
  * {@link Binding#get} or {@link Binding#injectMembers} methods. They are only suitable
  * for graph analysis and error detection.
+ *
+ * <p>Type resolution and the analysis of each injectable type are cached, so a single loader
+ * shared by all of the linkers of a compilation inspects each type only once.
  */
 public final class GraphAnalysisLoader extends Loader {
 
   private final ProcessingEnvironment processingEnv;
+  private final Map<String, TypeElement> resolvedTypes = new LinkedHashMap<String, TypeElement>();
+  private final Map<String, GraphAnalysisInjectBinding.Metadata> injectMetadata =
+      new LinkedHashMap<String, GraphAnalysisInjectBinding.Metadata>();
 
   public GraphAnalysisLoader(ProcessingEnvironment processingEnv) {
     this.processingEnv = processingEnv;
@@ -41,7 +50,13 @@ public final class GraphAnalysisLoader extends Loader {
 
   @Override public Binding<?> getAtInjectBinding(
       String key, String className, ClassLoader classLoader, boolean mustHaveInjections) {
-    TypeElement type = resolveType(processingEnv.getElementUtils(), className);
+    TypeElement type;
+    if (resolvedTypes.containsKey(className)) {
+      type = resolvedTypes.get(className);
+    } else {
+      type = resolveType(processingEnv.getElementUtils(), className);
+      resolvedTypes.put(className, type);
+    }
     if (type == null) {
       // We've encountered a type that the compiler can't introspect. If this
       // causes problems in practice (due to incremental compiles, etc.) we
@@ -49,10 +64,18 @@ public final class GraphAnalysisLoader extends Loader {
       // of runtime failures.
       return null;
     }
-    if (type.getKind() == ElementKind.INTERFACE) {
+    boolean assistedFactory = type.getAnnotation(AssistedFactory.class) != null;
+    if (type.getKind() == ElementKind.INTERFACE && !assistedFactory) {
       return null;
     }
-    return GraphAnalysisInjectBinding.create(type, mustHaveInjections);
+    GraphAnalysisInjectBinding.Metadata metadata = injectMetadata.get(className);
+    if (metadata == null) {
+      metadata = assistedFactory
+          ? GraphAnalysisInjectBinding.analyzeAssistedFactory(type)
+          : GraphAnalysisInjectBinding.analyze(type);
+      injectMetadata.put(className, metadata);
+    }
+    return GraphAnalysisInjectBinding.create(metadata, mustHaveInjections);
   }
 
   /**
@@ -122,7 +145,7 @@ public final class GraphAnalysisLoader extends Loader {
     }
   }
 
-  private static TypeElement getTypeElement(Elements elements, CharSequence className) {
+  static TypeElement getTypeElement(Elements elements, CharSequence className) {
     try {
       return elements.getTypeElement(className);
     } catch (ClassCastException e) {
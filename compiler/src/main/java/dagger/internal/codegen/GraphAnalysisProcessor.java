@@ -15,15 +15,28 @@
  */
 package dagger.internal.codegen;
 
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.WildcardTypeName;
 import dagger.Module;
 import dagger.Provides;
 import dagger.internal.Binding;
 import dagger.internal.Binding.InvalidBindingException;
 import dagger.internal.BindingsGroup;
+import dagger.internal.GraphAdapter;
 import dagger.internal.Linker;
+import dagger.internal.Loader;
+import dagger.internal.ModuleAdapter;
 import dagger.internal.ProblemDetector;
 import dagger.internal.ProvidesBinding;
 import dagger.internal.SetBinding;
+import dagger.internal.StaticInjection;
 import dagger.internal.codegen.Util.CodeGenerationIncompleteException;
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -31,6 +44,7 @@ import java.io.StringWriter;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.LinkedHashMap;
@@ -39,6 +53,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import javax.annotation.processing.AbstractProcessor;
 import javax.annotation.processing.RoundEnvironment;
 import javax.annotation.processing.SupportedAnnotationTypes;
@@ -58,11 +73,21 @@ import javax.tools.StandardLocation;
 
 import static dagger.Provides.Type.SET;
 import static dagger.Provides.Type.SET_VALUES;
+import static dagger.internal.codegen.Util.BINDING_OF_ANY;
 import static dagger.internal.codegen.Util.className;
 import static dagger.internal.codegen.Util.getAnnotation;
 import static dagger.internal.codegen.Util.getPackage;
 import static dagger.internal.codegen.Util.isInterface;
+import static dagger.internal.loaders.GeneratedAdapters.GRAPH_ADAPTER_SUFFIX;
+import static dagger.internal.loaders.GeneratedAdapters.INJECT_ADAPTER_SUFFIX;
+import static dagger.internal.loaders.GeneratedAdapters.MODULE_ADAPTER_SUFFIX;
+import static dagger.internal.loaders.GeneratedAdapters.STATIC_INJECTION_SUFFIX;
 import static java.util.Arrays.asList;
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PROTECTED;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
 
 /**
  * Performs full graph analysis on a module.
@@ -74,6 +99,27 @@ public final class GraphAnalysisProcessor extends AbstractProcessor {
 
   private final Set<String> delayedModuleNames = new LinkedHashSet<String>();
 
+  /** Modules which have had a graph adapter written, or which will never have one. */
+  private final Set<String> graphAdapterModuleNames = new LinkedHashSet<String>();
+
+  /** Modules whose graphs were linked and checked before the final round. */
+  private final Set<String> analyzedModuleNames = new LinkedHashSet<String>();
+
+  /** The classes whose {@code @Inject} bindings are used by each graph in analyzedModuleNames. */
+  private final Map<String, Set<String>> injectedClassNamesByModule =
+      new LinkedHashMap<String, Set<String>>();
+
+  // Many root modules typically include the same modules, so everything derived from a module or
+  // an injectable type is computed once per compilation and shared by every root that uses it.
+  // Only immutable metadata is cached: bindings are stateful and are created fresh for each root.
+  private final Map<String, Map<String, Object>> moduleAnnotations =
+      new LinkedHashMap<String, Map<String, Object>>();
+  private final Map<String, Map<String, TypeElement>> moduleIncludes =
+      new LinkedHashMap<String, Map<String, TypeElement>>();
+  private final Map<String, List<ProviderMethod>> moduleProviderMethods =
+      new LinkedHashMap<String, List<ProviderMethod>>();
+  private GraphAnalysisLoader loader;
+
   @Override public SourceVersion getSupportedSourceVersion() {
     return SourceVersion.latestSupported();
   }
@@ -93,67 +139,118 @@ public final class GraphAnalysisProcessor extends AbstractProcessor {
         }
         delayedModuleNames.add(((TypeElement) e).getQualifiedName().toString());
       }
+      loader = new GraphAnalysisLoader(processingEnv);
+      try {
+        writeGraphAdapters();
+      } finally {
+        clearCaches();
+      }
       return false;
     }
 
     Set<Element> modules = new LinkedHashSet<Element>();
     for (String moduleName : delayedModuleNames) {
-      modules.add(elements().getTypeElement(moduleName));
+      if (!analyzedModuleNames.contains(moduleName)) {
+        modules.add(elements().getTypeElement(moduleName));
+      }
     }
 
-    for (Element element : modules) {
-      Map<String, Object> annotation = null;
-      try {
-        annotation = getAnnotation(Module.class, element);
-      } catch (CodeGenerationIncompleteException e) {
-        continue; // skip this element. An up-stream compiler error is in play.
+    loader = new GraphAnalysisLoader(processingEnv);
+    try {
+      for (Element element : modules) {
+        analyzeModule((TypeElement) element);
       }
+    } finally {
+      clearCaches();
+    }
+    return false;
+  }
 
-      TypeElement moduleType = (TypeElement) element;
-      if (annotation == null) {
-        error("Missing @Module annotation.", moduleType);
-        continue;
+  private void clearCaches() {
+    loader = null;
+    moduleAnnotations.clear();
+    moduleIncludes.clear();
+    moduleProviderMethods.clear();
+  }
+
+  private void analyzeModule(TypeElement moduleType) {
+    Map<String, Object> annotation = null;
+    try {
+      annotation = moduleAnnotation(moduleType);
+    } catch (CodeGenerationIncompleteException e) {
+      return; // skip this element. An up-stream compiler error is in play.
+    }
+
+    if (annotation == null) {
+      error("Missing @Module annotation.", moduleType);
+      return;
+    }
+    boolean complete = annotation.get("complete").equals(Boolean.TRUE);
+    boolean library = annotation.get("library").equals(Boolean.TRUE);
+    if (!complete && library) {
+      return; // Neither completeness nor unused bindings are checked. Nothing to link.
+    }
+
+    // One linking pass serves both checks: completeness errors are only reported for
+    // complete modules, and the same linked bindings are then checked for unused providers.
+    Map<String, Binding<?>> bindings;
+    try {
+      bindings = processCompleteModule(moduleType, !complete);
+    } catch (ModuleValidationException e) {
+      error("Graph validation failed: " + e.getMessage(), e.source);
+      return;
+    } catch (InvalidBindingException e) {
+      error("Graph validation failed: " + e.getMessage(), elements().getTypeElement(e.type));
+      return;
+    } catch (RuntimeException e) {
+      if (ERROR_NAMES_TO_PROPAGATE.contains(e.getClass().getName())) {
+        throw e;
       }
-      if (annotation.get("complete").equals(Boolean.TRUE)) {
-        Map<String, Binding<?>> bindings;
-        try {
-          bindings = processCompleteModule(moduleType, false);
-          new ProblemDetector().detectCircularDependencies(bindings.values());
-        } catch (ModuleValidationException e) {
-          error("Graph validation failed: " + e.getMessage(), e.source);
-          continue;
-        } catch (InvalidBindingException e) {
-          error("Graph validation failed: " + e.getMessage(), elements().getTypeElement(e.type));
-          continue;
-        } catch (RuntimeException e) {
-          if (ERROR_NAMES_TO_PROPAGATE.contains(e.getClass().getName())) {
-            throw e;
-          }
-          error("Unknown error " + e.getClass().getName() + " thrown by javac in graph validation: "
-              + e.getMessage(), moduleType);
-          continue;
-        }
-        try {
-          writeDotFile(moduleType, bindings);
-        } catch (IOException e) {
-          StringWriter sw = new StringWriter();
-          e.printStackTrace(new PrintWriter(sw));
-          processingEnv.getMessager()
-              .printMessage(Diagnostic.Kind.WARNING,
-                  "Graph visualization failed. Please report this as a bug.\n\n" + sw, moduleType);
+      error("Unknown error " + e.getClass().getName() + " thrown by javac in graph validation: "
+          + e.getMessage(), moduleType);
+      return;
+    }
+    checkLinkedGraph(moduleType, bindings, complete, library);
+  }
+
+  /**
+   * Checks the linked graph of {@code moduleType} for dependency cycles if it is {@code complete}
+   * and for unused bindings unless it is a {@code library}, and writes the graph's dot file.
+   * Returns false if an error was reported.
+   */
+  private boolean checkLinkedGraph(TypeElement moduleType, Map<String, Binding<?>> bindings,
+      boolean complete, boolean library) {
+    if (complete) {
+      try {
+        new ProblemDetector().detectCircularDependencies(bindings.values());
+      } catch (RuntimeException e) {
+        if (ERROR_NAMES_TO_PROPAGATE.contains(e.getClass().getName())) {
+          throw e;
         }
+        error("Unknown error " + e.getClass().getName() + " thrown by javac in graph validation: "
+            + e.getMessage(), moduleType);
+        return false;
+      }
+      try {
+        writeDotFile(moduleType, bindings);
+      } catch (IOException e) {
+        StringWriter sw = new StringWriter();
+        e.printStackTrace(new PrintWriter(sw));
+        processingEnv.getMessager()
+            .printMessage(Diagnostic.Kind.WARNING,
+                "Graph visualization failed. Please report this as a bug.\n\n" + sw, moduleType);
       }
+    }
 
-      if (annotation.get("library").equals(Boolean.FALSE)) {
-        Map<String, Binding<?>> bindings = processCompleteModule(moduleType, true);
-        try {
-          new ProblemDetector().detectUnusedBinding(bindings.values());
-        } catch (IllegalStateException e) {
-          error("Graph validation failed: " + e.getMessage(), moduleType);
-        }
+    if (!library) {
+      try {
+        new ProblemDetector().detectUnusedBinding(bindings.values());
+      } catch (IllegalStateException e) {
+        error("Graph validation failed: " + e.getMessage(), moduleType);
+        return false;
       }
     }
-    return false;
+    return true;
   }
 
   private void error(String message, Element element) {
@@ -162,14 +259,24 @@ public final class GraphAnalysisProcessor extends AbstractProcessor {
 
   private Map<String, Binding<?>> processCompleteModule(TypeElement rootModule,
       boolean ignoreCompletenessErrors) {
+    Linker.ErrorHandler errorHandler = ignoreCompletenessErrors ? Linker.ErrorHandler.NULL
+        : new GraphAnalysisErrorHandler(processingEnv, rootModule.getQualifiedName().toString());
+    return linkModule(rootModule, loader, errorHandler, true);
+  }
+
+  /**
+   * Links the graph of {@code rootModule}, creating {@code @Inject} bindings with {@code loader}
+   * and passing any linker errors to {@code errorHandler}. Duplicate bindings are reported as
+   * errors only if {@code reportDuplicates}; they also fail by throwing.
+   */
+  private Map<String, Binding<?>> linkModule(TypeElement rootModule, Loader loader,
+      Linker.ErrorHandler errorHandler, boolean reportDuplicates) {
     Map<String, TypeElement> allModules = new LinkedHashMap<String, TypeElement>();
     collectIncludesRecursively(rootModule, allModules, new LinkedList<String>());
     ArrayList<GraphAnalysisStaticInjection> staticInjections =
         new ArrayList<GraphAnalysisStaticInjection>();
 
-    Linker.ErrorHandler errorHandler = ignoreCompletenessErrors ? Linker.ErrorHandler.NULL
-        : new GraphAnalysisErrorHandler(processingEnv, rootModule.getQualifiedName().toString());
-    Linker linker = new Linker(null, new GraphAnalysisLoader(processingEnv), errorHandler);
+    Linker linker = new Linker(null, loader, errorHandler);
     // Linker requires synchronization for calls to requestBinding and linkAll.
     // We know statically that we're single threaded, but we synchronize anyway
     // to make the linker happy.
@@ -185,7 +292,7 @@ public final class GraphAnalysisProcessor extends AbstractProcessor {
         }
       };
       for (TypeElement module : allModules.values()) {
-        Map<String, Object> annotation = getAnnotation(Module.class, module);
+        Map<String, Object> annotation = moduleAnnotation(module);
         boolean overrides = (Boolean) annotation.get("overrides");
         boolean library = (Boolean) annotation.get("library");
         BindingsGroup addTo = overrides ? overrideBindings : baseBindings;
@@ -211,18 +318,14 @@ public final class GraphAnalysisProcessor extends AbstractProcessor {
         }
 
         // Gather the enclosed @Provides methods.
-        for (Element enclosed : module.getEnclosedElements()) {
-          Provides provides = enclosed.getAnnotation(Provides.class);
-          if (provides == null) {
-            continue;
-          }
-          ExecutableElement providerMethod = (ExecutableElement) enclosed;
-          String key = GeneratorKeys.get(providerMethod);
-          ProvidesBinding<?> binding = new ProviderMethodBinding(key, providerMethod, library);
+        for (ProviderMethod method : providerMethods(module)) {
+          ExecutableElement providerMethod = method.method;
+          String key = method.key;
+          ProvidesBinding<?> binding = new ProviderMethodBinding(method, library);
 
           Binding<?> previous = addTo.get(key);
-          if (previous != null) {
-            if ((provides.type() == SET || provides.type() == SET_VALUES)
+          if (previous != null && reportDuplicates) {
+            if ((method.type == SET || method.type == SET_VALUES)
                 && previous instanceof SetBinding) {
               // No duplicate bindings error if both bindings are set bindings.
             } else {
@@ -235,8 +338,9 @@ public final class GraphAnalysisProcessor extends AbstractProcessor {
             }
           }
 
-          switch (provides.type()) {
+          switch (method.type) {
             case UNIQUE:
+            case ALIAS:
               if (injectsProvisionKeys.contains(binding.provideKey)) {
                 binding.setDependedOn(true);
               }
@@ -248,8 +352,7 @@ public final class GraphAnalysisProcessor extends AbstractProcessor {
               break;
 
             case SET:
-              String setKey = GeneratorKeys.getSetKey(providerMethod);
-              SetBinding.add(addTo, setKey, binding);
+              SetBinding.add(addTo, method.setKey, binding);
               break;
 
             case SET_VALUES:
@@ -257,7 +360,7 @@ public final class GraphAnalysisProcessor extends AbstractProcessor {
               break;
 
             default:
-              throw new AssertionError("Unknown @Provides type " + provides.type());
+              throw new AssertionError("Unknown @Provides type " + method.type);
           }
         }
       }
@@ -274,20 +377,304 @@ public final class GraphAnalysisProcessor extends AbstractProcessor {
     }
   }
 
+  /**
+   * Analyzes each complete module whose graph links without errors in this round, and writes its
+   * {@link GraphAdapter}. This can't wait for the final round like the rest of the analysis, as
+   * javac warns about sources written then. The same linked graph is checked like it would be in
+   * the final round, so that no graph is linked twice once it links. A module whose graph doesn't
+   * link yet is retried in later rounds; one that never links before the final round is analyzed
+   * then and gets no graph adapter, and its adapters are loaded by name at runtime.
+   *
+   * <p>A module which adds to another graph gets an extension graph adapter. It holds only the
+   * modules, static injections and {@code @Inject} bindings that are not already part of the
+   * graph it extends.
+   */
+  private void writeGraphAdapters() {
+    for (String moduleName : delayedModuleNames) {
+      analyzeAndWriteGraphAdapter(moduleName);
+    }
+  }
+
+  private void analyzeAndWriteGraphAdapter(String moduleName) {
+    if (graphAdapterModuleNames.contains(moduleName)) {
+      return;
+    }
+    TypeElement module = elements().getTypeElement(moduleName);
+    Map<String, Object> annotation;
+    try {
+      annotation = module != null ? moduleAnnotation(module) : null;
+    } catch (CodeGenerationIncompleteException e) {
+      return; // A type is not available yet. Try again next round.
+    }
+    if (annotation == null || !annotation.get("complete").equals(Boolean.TRUE)) {
+      graphAdapterModuleNames.add(moduleName); // Not the root of a complete graph.
+      return;
+    }
+    Object addsToType = annotation.get("addsTo");
+    TypeElement addsTo = !addsToType.equals(Void.class)
+        ? (TypeElement) processingEnv.getTypeUtils().asElement((TypeMirror) addsToType)
+        : null;
+    // The module adapter is written in the same round as most @Inject adapters. Once it can be
+    // referenced, those other adapters can be too.
+    if (getAdapter(module, MODULE_ADAPTER_SUFFIX) == null) {
+      return;
+    }
+
+    RecordingLoader recordingLoader = new RecordingLoader(loader);
+    final boolean[] linkFailed = new boolean[1];
+    Linker.ErrorHandler errorHandler = new Linker.ErrorHandler() {
+      @Override public void handleErrors(List<String> errors) {
+        linkFailed[0] |= !errors.isEmpty();
+      }
+    };
+    Map<String, Binding<?>> bindings;
+    try {
+      bindings = linkModule(module, recordingLoader, errorHandler, false);
+    } catch (RuntimeException e) {
+      if (ERROR_NAMES_TO_PROPAGATE.contains(e.getClass().getName())) {
+        throw e;
+      }
+      return; // Reported by the analysis in the final round, if it persists.
+    }
+    if (linkFailed[0]) {
+      return;
+    }
+    graphAdapterModuleNames.add(moduleName);
+    analyzedModuleNames.add(moduleName);
+    injectedClassNamesByModule.put(moduleName, recordingLoader.injectedClassNames);
+    boolean library = annotation.get("library").equals(Boolean.TRUE);
+    if (!checkLinkedGraph(module, bindings, true, library)) {
+      return;
+    }
+
+    Map<String, TypeElement> allModules = new LinkedHashMap<String, TypeElement>();
+    collectIncludesRecursively(module, allModules, new LinkedList<String>());
+    Set<String> injectedClassNames =
+        new LinkedHashSet<String>(recordingLoader.injectedClassNames);
+    if (addsTo != null) {
+      // Everything the extended graph has already is found there at runtime.
+      Set<String> baseInjectedClassNames;
+      try {
+        baseInjectedClassNames = injectedClassNames(addsTo);
+      } catch (RuntimeException e) {
+        if (ERROR_NAMES_TO_PROPAGATE.contains(e.getClass().getName())) {
+          throw e;
+        }
+        return; // The extended graph's own analysis reports why.
+      }
+      Map<String, TypeElement> baseModules = new LinkedHashMap<String, TypeElement>();
+      collectIncludesRecursively(addsTo, baseModules, new LinkedList<String>());
+      allModules.keySet().removeAll(baseModules.keySet());
+      injectedClassNames.removeAll(baseInjectedClassNames);
+    }
+
+    try {
+      writeGraphAdapter(module, allModules.values(), injectedClassNames, addsTo != null);
+    } catch (IOException e) {
+      error("Code gen failed: " + e, module);
+    }
+  }
+
+  /**
+   * Returns the classes whose {@code @Inject} bindings are used by the graph of {@code module}.
+   * That graph is only linked here if it isn't analyzed in this compilation.
+   */
+  private Set<String> injectedClassNames(TypeElement module) {
+    String moduleName = module.getQualifiedName().toString();
+    if (delayedModuleNames.contains(moduleName)) {
+      analyzeAndWriteGraphAdapter(moduleName);
+    }
+    Set<String> result = injectedClassNamesByModule.get(moduleName);
+    if (result == null) {
+      RecordingLoader recordingLoader = new RecordingLoader(loader);
+      linkModule(module, recordingLoader, Linker.ErrorHandler.NULL, false);
+      result = recordingLoader.injectedClassNames;
+    }
+    return result;
+  }
+
+  private void writeGraphAdapter(TypeElement rootModule, Collection<TypeElement> modules,
+      Set<String> injectedClassNames, boolean extension) throws IOException {
+    Map<String, ClassName> moduleAdapters = new TreeMap<String, ClassName>();
+    Map<String, ClassName> staticInjections = new TreeMap<String, ClassName>();
+    for (TypeElement module : modules) {
+      ClassName moduleAdapter = getAdapter(module, MODULE_ADAPTER_SUFFIX);
+      if (moduleAdapter != null) {
+        moduleAdapters.put(elements().getBinaryName(module).toString(), moduleAdapter);
+      }
+      for (Object staticInjection : (Object[]) moduleAnnotation(module).get("staticInjections")) {
+        TypeElement injectedType = (TypeElement) processingEnv.getTypeUtils()
+            .asElement((TypeMirror) staticInjection);
+        ClassName adapter = getAdapter(injectedType, STATIC_INJECTION_SUFFIX);
+        if (adapter != null) {
+          staticInjections.put(elements().getBinaryName(injectedType).toString(), adapter);
+        }
+      }
+    }
+    Map<String, ClassName> injectAdapters = new TreeMap<String, ClassName>();
+    for (String className : injectedClassNames) {
+      TypeElement adapter = GraphAnalysisLoader.getTypeElement(
+          elements(), className.concat(INJECT_ADAPTER_SUFFIX));
+      if (adapter != null) {
+        injectAdapters.put(className, ClassName.get(adapter));
+      }
+    }
+
+    ClassName moduleClassName = ClassName.get(rootModule);
+    ClassName adapterClassName = Util.adapterName(moduleClassName, GRAPH_ADAPTER_SUFFIX);
+    TypeSpec.Builder result = TypeSpec.classBuilder(adapterClassName.simpleName())
+        .addOriginatingElement(rootModule)
+        .addJavadoc(extension
+            ? AdapterJavadocs.EXTENSION_GRAPH_ADAPTER_TYPE
+            : AdapterJavadocs.GRAPH_ADAPTER_TYPE, moduleClassName)
+        .addModifiers(PUBLIC, FINAL)
+        .superclass(GraphAdapter.class);
+    result.addField(classNamesField("MODULE_ADAPTERS", moduleAdapters.keySet()));
+    result.addField(classNamesField("INJECT_ADAPTERS", injectAdapters.keySet()));
+    result.addField(classNamesField("STATIC_INJECTIONS", staticInjections.keySet()));
+    result.addMethod(MethodSpec.constructorBuilder()
+        .addModifiers(PUBLIC)
+        .addStatement(extension
+            ? "super(MODULE_ADAPTERS, INJECT_ADAPTERS, STATIC_INJECTIONS, true)"
+            : "super(MODULE_ADAPTERS, INJECT_ADAPTERS, STATIC_INJECTIONS)")
+        .build());
+    result.addMethod(newAdapterMethod("newModuleAdapter",
+        ParameterizedTypeName.get(ClassName.get(ModuleAdapter.class),
+            WildcardTypeName.subtypeOf(Object.class)),
+        moduleAdapters.values()));
+    result.addMethod(newAdapterMethod("newInjectAdapter", BINDING_OF_ANY,
+        injectAdapters.values()));
+    result.addMethod(newAdapterMethod("newStaticInjection", ClassName.get(StaticInjection.class),
+        staticInjections.values()));
+
+    JavaFile.builder(moduleClassName.packageName(), result.build())
+        .addFileComment(AdapterJavadocs.GENERATED_BY_DAGGER)
+        .build()
+        .writeTo(processingEnv.getFiler());
+  }
+
+  /**
+   * Returns the name of {@code type}'s generated adapter with {@code suffix}, or null if that
+   * adapter can't be referenced in this round.
+   */
+  private ClassName getAdapter(TypeElement type, String suffix) {
+    String adapterName = elements().getBinaryName(type).toString().concat(suffix);
+    TypeElement adapter = GraphAnalysisLoader.getTypeElement(elements(), adapterName);
+    return adapter != null ? ClassName.get(adapter) : null;
+  }
+
+  private static FieldSpec classNamesField(String name, Set<String> classNames) {
+    CodeBlock.Builder initializer = CodeBlock.builder().add("{ ");
+    for (String className : classNames) {
+      initializer.add("$S, ", className);
+    }
+    initializer.add("}");
+    return FieldSpec.builder(String[].class, name)
+        .addModifiers(PRIVATE, STATIC, FINAL)
+        .initializer("$L", initializer.build())
+        .build();
+  }
+
+  private static MethodSpec newAdapterMethod(
+      String name, TypeName returnType, Collection<ClassName> adapters) {
+    MethodSpec.Builder result = MethodSpec.methodBuilder(name)
+        .addAnnotation(Override.class)
+        .addModifiers(PROTECTED)
+        .returns(returnType)
+        .addParameter(int.class, "index")
+        .beginControlFlow("switch (index)");
+    int index = 0;
+    for (ClassName adapter : adapters) {
+      result.addCode("case $L:\n$>return new $T();\n$<", index++, adapter);
+    }
+    return result.addCode("default:\n$>throw new $T(index);\n$<", AssertionError.class)
+        .endControlFlow()
+        .build();
+  }
+
+  /** Records the classes whose {@code @Inject} bindings are used by a graph. */
+  private static final class RecordingLoader extends Loader {
+    private final Loader delegate;
+    final Set<String> injectedClassNames = new LinkedHashSet<String>();
+
+    RecordingLoader(Loader delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override public Binding<?> getAtInjectBinding(
+        String key, String className, ClassLoader classLoader, boolean mustHaveInjections) {
+      Binding<?> result =
+          delegate.getAtInjectBinding(key, className, classLoader, mustHaveInjections);
+      if (result != null) {
+        injectedClassNames.add(className);
+      }
+      return result;
+    }
+
+    @Override public <T> ModuleAdapter<T> getModuleAdapter(Class<T> moduleClass) {
+      return delegate.getModuleAdapter(moduleClass);
+    }
+
+    @Override public StaticInjection getStaticInjection(Class<?> injectedClass) {
+      return delegate.getStaticInjection(injectedClass);
+    }
+  }
+
   private Elements elements() {
     return processingEnv.getElementUtils();
   }
 
+  /** Returns the parsed {@code @Module} annotation of {@code module}, or null if it has none. */
+  private Map<String, Object> moduleAnnotation(TypeElement module) {
+    String name = module.getQualifiedName().toString();
+    Map<String, Object> annotation = moduleAnnotations.get(name);
+    if (annotation == null) {
+      annotation = getAnnotation(Module.class, module);
+      if (annotation != null) {
+        moduleAnnotations.put(name, annotation);
+      }
+    }
+    return annotation;
+  }
+
+  /** Returns the {@code @Provides} methods declared by {@code module}, with their keys. */
+  private List<ProviderMethod> providerMethods(TypeElement module) {
+    String name = module.getQualifiedName().toString();
+    List<ProviderMethod> result = moduleProviderMethods.get(name);
+    if (result == null) {
+      result = new ArrayList<ProviderMethod>();
+      for (Element enclosed : module.getEnclosedElements()) {
+        Provides provides = enclosed.getAnnotation(Provides.class);
+        if (provides != null) {
+          result.add(new ProviderMethod((ExecutableElement) enclosed, provides.type()));
+        }
+      }
+      moduleProviderMethods.put(name, result);
+    }
+    return result;
+  }
+
+  /**
+   * Adds {@code module} and everything it transitively includes to {@code result}. The modules
+   * reachable from each module are only collected once; those are known to be free of inclusion
+   * cycles, so {@code path} need not be checked against them.
+   */
   void collectIncludesRecursively(
       TypeElement module, Map<String, TypeElement> result, Deque<String> path) {
-    Map<String, Object> annotation = getAnnotation(Module.class, module);
+    String name = module.getQualifiedName().toString();
+    Map<String, TypeElement> reachable = moduleIncludes.get(name);
+    if (reachable != null) {
+      result.putAll(reachable);
+      return;
+    }
+
+    Map<String, Object> annotation = moduleAnnotation(module);
     if (annotation == null) {
       // TODO(tbroyer): pass annotation information
       throw new ModuleValidationException("No @Module on " + module, module);
     }
 
     // Add the module.
-    String name = module.getQualifiedName().toString();
     if (path.contains(name)) {
       StringBuilder message = new StringBuilder("Module Inclusion Cycle: ");
       if (path.size() == 1) {
@@ -305,7 +692,8 @@ public final class GraphAnalysisProcessor extends AbstractProcessor {
       }
       throw new ModuleValidationException(message.toString(), module);
     }
-    result.put(name, module);
+    reachable = new LinkedHashMap<String, TypeElement>();
+    reachable.put(name, module);
 
     // Recurse for each included module.
     Types types = processingEnv.getTypeUtils();
@@ -321,28 +709,51 @@ public final class GraphAnalysisProcessor extends AbstractProcessor {
       }
       TypeElement includedModule = (TypeElement) types.asElement((TypeMirror) include);
       path.push(name);
-      collectIncludesRecursively(includedModule, result, path);
+      collectIncludesRecursively(includedModule, reachable, path);
       path.pop();
     }
+    moduleIncludes.put(name, reachable);
+    result.putAll(reachable);
+  }
+
+  /** A {@code @Provides} method and the keys it binds and depends on. */
+  static final class ProviderMethod {
+    final ExecutableElement method;
+    final Provides.Type type;
+    final String key;
+    final String setKey;
+    final List<String> parameterKeys;
+
+    ProviderMethod(ExecutableElement method, Provides.Type type) {
+      this.method = method;
+      this.type = type;
+      this.key = GeneratorKeys.get(method);
+      this.setKey = type == SET ? GeneratorKeys.getSetKey(method) : null;
+      List<String> parameterKeys = new ArrayList<String>();
+      for (VariableElement parameter : method.getParameters()) {
+        parameterKeys.add(GeneratorKeys.get(parameter));
+      }
+      this.parameterKeys = parameterKeys;
+    }
   }
 
   static class ProviderMethodBinding extends ProvidesBinding<Object> {
     private final ExecutableElement method;
+    private final List<String> parameterKeys;
     private final Binding<?>[] parameters;
 
-    protected ProviderMethodBinding(String provideKey, ExecutableElement method, boolean library) {
-      super(provideKey, method.getAnnotation(Singleton.class) != null,
-          className(method), method.getSimpleName().toString());
-      this.method = method;
-      this.parameters = new Binding[method.getParameters().size()];
+    protected ProviderMethodBinding(ProviderMethod providerMethod, boolean library) {
+      super(providerMethod.key, providerMethod.method.getAnnotation(Singleton.class) != null,
+          className(providerMethod.method), providerMethod.method.getSimpleName().toString());
+      this.method = providerMethod.method;
+      this.parameterKeys = providerMethod.parameterKeys;
+      this.parameters = new Binding[parameterKeys.size()];
       setLibrary(library);
     }
 
     @Override public void attach(Linker linker) {
-      for (int i = 0; i < method.getParameters().size(); i++) {
-        VariableElement parameter = method.getParameters().get(i);
-        String parameterKey = GeneratorKeys.get(parameter);
-        parameters[i] = linker.requestBinding(parameterKey, method.toString(),
+      for (int i = 0; i < parameterKeys.size(); i++) {
+        parameters[i] = linker.requestBinding(parameterKeys.get(i), method.toString(),
             getClass().getClassLoader());
       }
     }
@@ -17,11 +17,15 @@
 package dagger.internal.codegen;
 
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
+import dagger.Assisted;
+import dagger.AssistedFactory;
 import dagger.ObjectGraph;
 import dagger.internal.Binding;
 import dagger.internal.Linker;
@@ -44,23 +48,31 @@ import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
 import javax.tools.Diagnostic;
 
 import static dagger.internal.codegen.AdapterJavadocs.bindingTypeDocs;
+import static dagger.internal.codegen.Util.KEY_IDS;
 import static dagger.internal.codegen.Util.SET_OF_BINDINGS;
 import static dagger.internal.codegen.Util.adapterName;
+import static dagger.internal.codegen.Util.assistedParameters;
+import static dagger.internal.codegen.Util.addGetMethods;
 import static dagger.internal.codegen.Util.bindingOf;
 import static dagger.internal.codegen.Util.elementToString;
 import static dagger.internal.codegen.Util.getApplicationSupertype;
 import static dagger.internal.codegen.Util.getNoArgsConstructor;
 import static dagger.internal.codegen.Util.getPackage;
+import static dagger.internal.codegen.Util.getterName;
 import static dagger.internal.codegen.Util.injectableType;
 import static dagger.internal.codegen.Util.isCallableConstructor;
+import static dagger.internal.codegen.Util.keyIdsField;
 import static dagger.internal.codegen.Util.rawTypeToString;
 import static dagger.internal.loaders.GeneratedAdapters.INJECT_ADAPTER_SUFFIX;
 import static dagger.internal.loaders.GeneratedAdapters.STATIC_INJECTION_SUFFIX;
+import static java.util.Arrays.asList;
 import static javax.lang.model.element.Modifier.ABSTRACT;
 import static javax.lang.model.element.Modifier.FINAL;
 import static javax.lang.model.element.Modifier.PRIVATE;
@@ -71,9 +83,10 @@ import static javax.lang.model.element.Modifier.STATIC;
  * Generates an implementation of {@link Binding} that injects the
  * {@literal @}{@code Inject}-annotated members of a class.
  */
-@SupportedAnnotationTypes("javax.inject.Inject")
+@SupportedAnnotationTypes({ "javax.inject.Inject", "dagger.Assisted", "dagger.AssistedFactory" })
 public final class InjectAdapterProcessor extends AbstractProcessor {
   private final Set<String> remainingTypeNames = new LinkedHashSet<String>();
+  private final Set<String> remainingFactoryNames = new LinkedHashSet<String>();
 
   @Override public SourceVersion getSupportedSourceVersion() {
     return SourceVersion.latestSupported();
@@ -102,12 +115,39 @@ public final class InjectAdapterProcessor extends AbstractProcessor {
       processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
           "Could not find injection type required by " + remainingTypeNames);
     }
+
+    validateAssistedParameters(env);
+    for (Element factory : env.getElementsAnnotatedWith(AssistedFactory.class)) {
+      remainingFactoryNames.add(((TypeElement) factory).getQualifiedName().toString());
+    }
+    for (Iterator<String> i = remainingFactoryNames.iterator(); i.hasNext();) {
+      TypeElement factory = processingEnv.getElementUtils().getTypeElement(i.next());
+      try {
+        if (generateAssistedFactory(factory)) {
+          i.remove();
+        }
+      } catch (IOException e) {
+        error("Code gen failed: " + e, factory);
+        i.remove();
+      }
+    }
+    if (env.processingOver() && !remainingFactoryNames.isEmpty()) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+          "Could not find types required by " + remainingFactoryNames);
+    }
     return false;
   }
 
   private void generateInjectionsForClass(InjectedClass injectedClass) throws IOException {
-    if (injectedClass.constructor != null || !injectedClass.fields.isEmpty()) {
-      generateInjectAdapter(injectedClass.type, injectedClass.constructor, injectedClass.fields);
+    ExecutableElement constructor = injectedClass.constructor;
+    boolean assisted = constructor != null && !assistedParameters(constructor).isEmpty();
+    if (assisted) {
+      // Instances are created by the type's @AssistedFactory, never provided by the graph.
+      constructor = null;
+    }
+    if (constructor != null || !injectedClass.fields.isEmpty()
+        || (assisted && getApplicationSupertype(injectedClass.type) != null)) {
+      generateInjectAdapter(injectedClass.type, constructor, injectedClass.fields);
     }
     if (!injectedClass.staticFields.isEmpty()) {
       generateStaticInjection(injectedClass.type, injectedClass.staticFields);
@@ -276,6 +316,10 @@ public final class InjectAdapterProcessor extends AbstractProcessor {
       result.addField(supertypeBindingField(supertype));
     }
 
+    if (dependent) {
+      result.addField(keyIdsField(attachKeys(constructor, fields, supertype)));
+    }
+
     result.addMethod(writeInjectAdapterConstructor(constructor, type, injectedClassName));
     if (dependent) {
       result.addMethod(attachMethod(
@@ -284,8 +328,9 @@ public final class InjectAdapterProcessor extends AbstractProcessor {
           constructor, fields, disambiguateFields, supertype, true));
     }
     if (constructor != null) {
-      result.addMethod(
-          getMethod(constructor, disambiguateFields, injectMembers, injectedClassName));
+      addGetMethods(result, injectedClassName,
+          getMethodBody(constructor, disambiguateFields, injectMembers, injectedClassName),
+          type.getAnnotation(Singleton.class) != null);
     }
     if (injectMembers) {
       result.addMethod(
@@ -298,6 +343,179 @@ public final class InjectAdapterProcessor extends AbstractProcessor {
     javaFile.writeTo(processingEnv.getFiler());
   }
 
+  /** Reports {@code @Assisted} parameters that aren't on an {@code @Inject} constructor. */
+  private void validateAssistedParameters(RoundEnvironment env) {
+    for (Element parameter : env.getElementsAnnotatedWith(Assisted.class)) {
+      Element method = parameter.getEnclosingElement();
+      if (method.getKind() != ElementKind.CONSTRUCTOR
+          || method.getAnnotation(Inject.class) == null) {
+        error("@Assisted is only valid on parameters of an @Inject constructor: "
+            + elementToString(method), parameter);
+      }
+    }
+  }
+
+  /**
+   * Write a companion class for the {@code @AssistedFactory} interface {@code factory} that
+   * extends {@link Binding} and implements that interface. Its factory method calls the
+   * constructor directly, passing its own arguments for the {@code @Assisted} parameters and
+   * getting the others from bindings linked with the graph.
+   *
+   * @return false if the types required by {@code factory} aren't available on this pass.
+   */
+  private boolean generateAssistedFactory(TypeElement factory) throws IOException {
+    if (factory.getKind() != ElementKind.INTERFACE
+        || !factory.getTypeParameters().isEmpty()) {
+      error("@AssistedFactory must be an interface without type parameters: "
+          + factory.getQualifiedName(), factory);
+      return true;
+    }
+    List<ExecutableElement> methods = ElementFilter.methodsIn(factory.getEnclosedElements());
+    if (methods.size() != 1) {
+      error("@AssistedFactory must declare exactly one method: " + factory.getQualifiedName(),
+          factory);
+      return true;
+    }
+    ExecutableElement method = methods.get(0);
+    if (method.getReturnType().getKind() == TypeKind.ERROR
+        || !allTypesExist(method.getParameters())) {
+      return false;
+    }
+    TypeElement type = method.getReturnType().getKind() == TypeKind.DECLARED
+        ? (TypeElement) ((DeclaredType) method.getReturnType()).asElement()
+        : null;
+    InjectedClass injectedClass = type != null && type.getTypeParameters().isEmpty()
+        ? createInjectedClass(type.getQualifiedName().toString())
+        : null;
+    ExecutableElement constructor = injectedClass != null ? injectedClass.constructor : null;
+    List<VariableElement> assisted = constructor != null
+        ? assistedParameters(constructor)
+        : new ArrayList<VariableElement>();
+    if (assisted.isEmpty()) {
+      error(elementToString(method) + " must return a class whose @Inject constructor has"
+          + " @Assisted parameters", method);
+      return true;
+    }
+    if (!allTypesExist(constructor.getParameters()) || !allTypesExist(injectedClass.fields)) {
+      return false;
+    }
+    List<? extends VariableElement> arguments = method.getParameters();
+    boolean matches = arguments.size() == assisted.size();
+    for (int i = 0; matches && i < arguments.size(); i++) {
+      matches = processingEnv.getTypeUtils().isSameType(
+          arguments.get(i).asType(), assisted.get(i).asType());
+    }
+    if (!matches) {
+      error("Parameters of " + elementToString(method) + " must match the @Assisted parameters"
+          + " of " + elementToString(constructor), method);
+      return true;
+    }
+
+    ClassName factoryName = ClassName.get(factory);
+    ClassName typeName = ClassName.get(type);
+    boolean injectMembers =
+        !injectedClass.fields.isEmpty() || getApplicationSupertype(type) != null;
+    List<String> keys = new ArrayList<String>();
+
+    // Isolating processors may only name one originating element. The constructed type is
+    // reachable from the factory through its method's return type, which is all Gradle needs.
+    TypeSpec.Builder result = TypeSpec.classBuilder(
+        adapterName(factoryName, INJECT_ADAPTER_SUFFIX).simpleName())
+        .addOriginatingElement(factory)
+        .addJavadoc(AdapterJavadocs.ASSISTED_FACTORY_TYPE, factoryName, typeName)
+        .addModifiers(PUBLIC, FINAL)
+        .superclass(ParameterizedTypeName.get(ClassName.get(Binding.class), factoryName));
+    MethodSpec.Builder attach = MethodSpec.methodBuilder("attach")
+        .addJavadoc(AdapterJavadocs.ATTACH_METHOD)
+        .addAnnotation(Override.class)
+        .addAnnotation(Util.UNCHECKED)
+        .addModifiers(PUBLIC)
+        .addParameter(Linker.class, "linker");
+    MethodSpec.Builder create = MethodSpec.methodBuilder(method.getSimpleName().toString())
+        .addAnnotation(Override.class)
+        .addModifiers(PUBLIC)
+        .returns(typeName);
+    CodeBlock.Builder newInstance = CodeBlock.builder()
+        .add("$T result = new $T(", typeName, typeName);
+    // The factory method's parameters are named after the @Assisted parameters, unless that would
+    // hide its local variable or a field it uses. The bindings' fields are prefixed like those of
+    // inject adapters, so that they can't clash with the adapter's own fields.
+    Set<String> reservedNames = new LinkedHashSet<String>(asList("result", "membersInjector"));
+    for (VariableElement parameter : constructor.getParameters()) {
+      if (parameter.getAnnotation(Assisted.class) == null) {
+        reservedNames.add(parameterName(true, parameter));
+      }
+    }
+    int argument = 0;
+    for (VariableElement parameter : constructor.getParameters()) {
+      if (argument + keys.size() > 0) {
+        newInstance.add(", ");
+      }
+      if (parameter.getAnnotation(Assisted.class) != null) {
+        String name = parameter.getSimpleName().toString();
+        while (!reservedNames.add(name)) {
+          name = name.concat("_");
+        }
+        create.addParameter(TypeName.get(parameter.asType()), name);
+        newInstance.add("$N", name);
+        argument++;
+        continue;
+      }
+      result.addField(parameterBindingField(true, parameter));
+      attach.addStatement(
+          "$N = ($T) linker.requestBinding($N[$L], $T.class, getClass().getClassLoader())",
+          parameterName(true, parameter), bindingOf(parameter.asType()),
+          KEY_IDS, keys.size(), factoryName);
+      newInstance.add("$N.$N()", parameterName(true, parameter), getterName(parameter.asType()));
+      keys.add(GeneratorKeys.get(parameter));
+    }
+    newInstance.add(");\n");
+    if (injectMembers) {
+      TypeName bindingType = ParameterizedTypeName.get(ClassName.get(Binding.class), typeName);
+      result.addField(bindingType, "membersInjector", PRIVATE);
+      attach.addStatement(
+          "$N = ($T) linker.requestBinding($N[$L], $T.class, getClass().getClassLoader()"
+              + ", false, true)",
+          "membersInjector", bindingType, KEY_IDS, keys.size(), factoryName);
+      newInstance.addStatement("membersInjector.injectMembers(result)");
+      keys.add(GeneratorKeys.rawMembersKey(type.asType()));
+    }
+    newInstance.addStatement("return result");
+    create.addCode(newInstance.build());
+
+    if (!keys.isEmpty()) {
+      result.addField(keyIdsField(keys));
+    }
+    result.addField(FieldSpec.builder(factoryName, "factory", PRIVATE, FINAL)
+        .initializer("$L", TypeSpec.anonymousClassBuilder("")
+            .addSuperinterface(factoryName)
+            .addMethod(create.build())
+            .build())
+        .build());
+    result.addMethod(MethodSpec.constructorBuilder()
+        .addModifiers(PUBLIC)
+        .addStatement("super($S, null, NOT_SINGLETON, $T.class)",
+            GeneratorKeys.get(factory.asType()), factoryName)
+        .build());
+    if (!keys.isEmpty()) {
+      result.addMethod(attach.build());
+    }
+    result.addMethod(MethodSpec.methodBuilder("get")
+        .addJavadoc(AdapterJavadocs.GET_METHOD, factoryName)
+        .addAnnotation(Override.class)
+        .addModifiers(PUBLIC)
+        .returns(factoryName)
+        .addStatement("return factory")
+        .build());
+
+    String packageName = getPackage(factory).getQualifiedName().toString();
+    JavaFile javaFile = JavaFile.builder(packageName, result.build())
+        .addFileComment(AdapterJavadocs.GENERATED_BY_DAGGER)
+        .build();
+    javaFile.writeTo(processingEnv.getFiler());
+    return true;
+  }
+
   /**
    * Write a companion class for {@code type} that extends {@link StaticInjection}.
    */
@@ -313,6 +531,7 @@ public final class InjectAdapterProcessor extends AbstractProcessor {
     for (Element field : fields) {
       result.addField(memberBindingField(false, field));
     }
+    result.addField(keyIdsField(attachKeys(null, fields, null)));
     result.addMethod(attachMethod(null, fields, false, typeName, null, true));
     result.addMethod(staticInjectMethod(fields, typeName));
 
@@ -345,11 +564,14 @@ public final class InjectAdapterProcessor extends AbstractProcessor {
     String membersKey = GeneratorKeys.rawMembersKey(type.asType());
     boolean singleton = type.getAnnotation(Singleton.class) != null;
 
-    return MethodSpec.constructorBuilder()
+    MethodSpec.Builder result = MethodSpec.constructorBuilder()
         .addModifiers(PUBLIC)
         .addStatement("super($S, $S, $N, $T.class)",
-            key, membersKey, (singleton ? "IS_SINGLETON" : "NOT_SINGLETON"), strippedTypeName)
-        .build();
+            key, membersKey, (singleton ? "IS_SINGLETON" : "NOT_SINGLETON"), strippedTypeName);
+    if (singleton && constructor != null) {
+      result.addStatement("setSelfScoped()");
+    }
+    return result.build();
   }
 
   private MethodSpec attachMethod(ExecutableElement constructor,
@@ -364,31 +586,50 @@ public final class InjectAdapterProcessor extends AbstractProcessor {
       result.addAnnotation(Override.class);
     }
     result.addAnnotation(Util.UNCHECKED);
+    int keyIndex = 0;
     if (constructor != null) {
       for (VariableElement parameter : constructor.getParameters()) {
         result.addStatement(
-            "$N = ($T) linker.requestBinding($S, $T.class, getClass().getClassLoader())",
+            "$N = ($T) linker.requestBinding($N[$L], $T.class, getClass().getClassLoader())",
             parameterName(disambiguateFields, parameter), bindingOf(parameter.asType()),
-            GeneratorKeys.get(parameter), typeName);
+            KEY_IDS, keyIndex++, typeName);
       }
     }
     for (Element field : fields) {
       result.addStatement(
-          "$N = ($T) linker.requestBinding($S, $T.class, getClass().getClassLoader())",
+          "$N = ($T) linker.requestBinding($N[$L], $T.class, getClass().getClassLoader())",
           fieldName(disambiguateFields, field), bindingOf(field.asType()),
-          GeneratorKeys.get((VariableElement) field), typeName);
+          KEY_IDS, keyIndex++, typeName);
     }
     if (supertype != null) {
       result.addStatement(
-          "$N = ($T) linker.requestBinding($S, $T.class, getClass().getClassLoader()"
+          "$N = ($T) linker.requestBinding($N[$L], $T.class, getClass().getClassLoader()"
               + ", false, true)",
           "supertype",
           bindingOf(supertype),
-          GeneratorKeys.rawMembersKey(supertype), typeName);
+          KEY_IDS, keyIndex, typeName);
     }
     return result.build();
   }
 
+  /** Returns the keys requested by {@link #attachMethod}, in the order it requests them. */
+  private List<String> attachKeys(
+      ExecutableElement constructor, List<Element> fields, TypeMirror supertype) {
+    List<String> result = new ArrayList<String>();
+    if (constructor != null) {
+      for (VariableElement parameter : constructor.getParameters()) {
+        result.add(GeneratorKeys.get(parameter));
+      }
+    }
+    for (Element field : fields) {
+      result.add(GeneratorKeys.get((VariableElement) field));
+    }
+    if (supertype != null) {
+      result.add(GeneratorKeys.rawMembersKey(supertype));
+    }
+    return result;
+  }
+
   private MethodSpec getDependenciesMethod(ExecutableElement constructor,
       List<Element> fields, boolean disambiguateFields, TypeMirror supertype,
       boolean extendsBinding) throws IOException {
@@ -415,22 +656,18 @@ public final class InjectAdapterProcessor extends AbstractProcessor {
     return result.build();
   }
 
-  private MethodSpec getMethod(ExecutableElement constructor, boolean disambiguateFields,
+  private CodeBlock getMethodBody(ExecutableElement constructor, boolean disambiguateFields,
       boolean injectMembers, ClassName injectedClassName) {
-    MethodSpec.Builder result = MethodSpec.methodBuilder("get")
-        .addJavadoc(AdapterJavadocs.GET_METHOD, injectedClassName)
-        .addAnnotation(Override.class)
-        .returns(injectedClassName)
-        .addModifiers(PUBLIC);
-
-    result.addCode("$T result = new $T(", injectedClassName, injectedClassName);
+    CodeBlock.Builder result = CodeBlock.builder()
+        .add("$T result = new $T(", injectedClassName, injectedClassName);
     boolean first = true;
     for (VariableElement parameter : constructor.getParameters()) {
-      if (!first) result.addCode(", ");
+      if (!first) result.add(", ");
       else first = false;
-      result.addCode("$N.get()", parameterName(disambiguateFields, parameter));
+      result.add("$N.$N()", parameterName(disambiguateFields, parameter),
+          getterName(parameter.asType()));
     }
-    result.addCode(");\n");
+    result.add(");\n");
     if (injectMembers) {
       result.addStatement("injectMembers(result)");
     }
@@ -446,9 +683,10 @@ public final class InjectAdapterProcessor extends AbstractProcessor {
         .addModifiers(PUBLIC)
         .addParameter(injectedClassName, "object");
     for (Element field : fields) {
-      result.addStatement("object.$N = $N.get()",
+      result.addStatement("object.$N = $N.$N()",
           field.getSimpleName(),
-          fieldName(disambiguateFields, field));
+          fieldName(disambiguateFields, field),
+          getterName(field.asType()));
     }
     if (supertype != null) {
       result.addStatement("supertype.injectMembers(object)");
@@ -462,10 +700,11 @@ public final class InjectAdapterProcessor extends AbstractProcessor {
         .addAnnotation(Override.class)
         .addModifiers(PUBLIC);
     for (Element field : fields) {
-      result.addStatement("$T.$N = $N.get()",
+      result.addStatement("$T.$N = $N.$N()",
           typeName,
           field.getSimpleName().toString(),
-          fieldName(false, field));
+          fieldName(false, field),
+          getterName(field.asType()));
     }
     return result.build();
   }
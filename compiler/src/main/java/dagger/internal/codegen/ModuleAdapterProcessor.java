@@ -15,6 +15,7 @@
  */
 package dagger.internal.codegen;
 
+import com.squareup.javapoet.ArrayTypeName;
 import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.FieldSpec;
@@ -26,7 +27,10 @@ import com.squareup.javapoet.TypeSpec;
 import dagger.Lazy;
 import dagger.Module;
 import dagger.Provides;
+import dagger.internal.AliasBinding;
+import dagger.internal.Binding;
 import dagger.internal.BindingsGroup;
+import dagger.internal.KeyIds;
 import dagger.internal.Linker;
 import dagger.internal.ModuleAdapter;
 import dagger.internal.ProvidesBinding;
@@ -35,6 +39,7 @@ import dagger.internal.codegen.Util.CodeGenerationIncompleteException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -63,12 +68,16 @@ import javax.tools.Diagnostic;
 
 import static dagger.internal.codegen.AdapterJavadocs.bindingTypeDocs;
 import static dagger.internal.codegen.Util.ARRAY_OF_CLASS;
+import static dagger.internal.codegen.Util.KEY_IDS;
+import static dagger.internal.codegen.Util.addGetMethods;
 import static dagger.internal.codegen.Util.bindingOf;
 import static dagger.internal.codegen.Util.elementToString;
 import static dagger.internal.codegen.Util.getAnnotation;
 import static dagger.internal.codegen.Util.getNoArgsConstructor;
+import static dagger.internal.codegen.Util.getterName;
 import static dagger.internal.codegen.Util.isCallableConstructor;
 import static dagger.internal.codegen.Util.isInterface;
+import static dagger.internal.codegen.Util.keyIdsField;
 import static dagger.internal.codegen.Util.typeToString;
 import static dagger.internal.loaders.GeneratedAdapters.MODULE_ADAPTER_SUFFIX;
 import static javax.lang.model.element.Modifier.ABSTRACT;
@@ -80,9 +89,16 @@ import static javax.lang.model.element.Modifier.STATIC;
 /**
  * Generates an implementation of {@link ModuleAdapter} that includes a binding
  * for each {@code @Provides} method of a target class.
+ *
+ * <p>By default each {@code @Provides} method gets its own binding class. When the {@value
+ * #FAST_INIT_OPTION} option is {@code true}, a module's methods instead share one binding class
+ * which dispatches on the method's index, so that large modules load and verify far fewer classes
+ * when the graph is created.
  */
-@SupportedAnnotationTypes({ "*" })
+@SupportedAnnotationTypes({ "dagger.Module", "dagger.Provides" })
 public final class ModuleAdapterProcessor extends AbstractProcessor {
+  static final String FAST_INIT_OPTION = "dagger.fastInit";
+
   private static final List<String> INVALID_RETURN_TYPES =
       Arrays.asList(Provider.class.getCanonicalName(), Lazy.class.getCanonicalName());
 
@@ -93,6 +109,10 @@ public final class ModuleAdapterProcessor extends AbstractProcessor {
     return SourceVersion.latestSupported();
   }
 
+  @Override public Set<String> getSupportedOptions() {
+    return Collections.singleton(FAST_INIT_OPTION);
+  }
+
   @Override public boolean process(Set<? extends TypeElement> types, RoundEnvironment env) {
     remainingTypes.putAll(providerMethodsByClass(env));
     for (Iterator<String> i = remainingTypes.keySet().iterator(); i.hasNext();) {
@@ -158,9 +178,8 @@ public final class ModuleAdapterProcessor extends AbstractProcessor {
 
       Set<Modifier> methodModifiers = providerMethod.getModifiers();
       if (methodModifiers.contains(PRIVATE)
-          || methodModifiers.contains(ABSTRACT)
-          || methodModifiers.contains(STATIC)) {
-        error("@Provides methods must not be private, abstract or static: "
+          || methodModifiers.contains(ABSTRACT)) {
+        error("@Provides methods must not be private or abstract: "
                 + type.getQualifiedName() + "." + providerMethod, providerMethod);
         continue;
       }
@@ -172,6 +191,11 @@ public final class ModuleAdapterProcessor extends AbstractProcessor {
         continue;
       }
 
+      if (providerMethod.getAnnotation(Provides.class).type() == Provides.Type.ALIAS
+          && !validateAlias(type, providerMethodAsExecutable)) {
+        continue;
+      }
+
       // Invalidate return types.
       TypeMirror returnType = types.erasure(providerMethodAsExecutable.getReturnType());
       if (!returnType.getKind().equals(TypeKind.ERROR)) {
@@ -220,6 +244,28 @@ public final class ModuleAdapterProcessor extends AbstractProcessor {
     return result;
   }
 
+  /** Returns true if {@code method} is a valid {@code @Provides(type = ALIAS)} method. */
+  private boolean validateAlias(TypeElement type, ExecutableElement method) {
+    List<? extends VariableElement> parameters = method.getParameters();
+    if (parameters.size() != 1) {
+      error("@Provides(type = ALIAS) methods must have exactly one parameter: "
+          + type.getQualifiedName() + "." + method, method);
+      return false;
+    }
+    if (!processingEnv.getTypeUtils().isAssignable(
+        parameters.get(0).asType(), method.getReturnType())) {
+      error("@Provides(type = ALIAS) methods must return a supertype of their parameter: "
+          + type.getQualifiedName() + "." + method, method);
+      return false;
+    }
+    if (method.getAnnotation(Singleton.class) != null) {
+      error("@Provides(type = ALIAS) methods must not be scoped: "
+          + type.getQualifiedName() + "." + method, method);
+      return false;
+    }
+    return true;
+  }
+
   private Set<? extends Element> findProvidesMethods(RoundEnvironment env) {
     Set<Element> result = new LinkedHashSet<Element>();
     result.addAll(env.getElementsAnnotatedWith(Provides.class));
@@ -276,6 +322,29 @@ public final class ModuleAdapterProcessor extends AbstractProcessor {
             type.asType(), overrides, complete, library)
         .build());
 
+    CodeBlock provideKeys = provideKeysInitializer(providerMethods);
+    if (provideKeys != null) {
+      adapterBuilder.addField(FieldSpec.builder(String[].class, "PROVIDE_KEYS")
+          .addModifiers(PRIVATE, STATIC, FINAL)
+          .initializer("$L", provideKeys)
+          .build());
+      adapterBuilder.addMethod(MethodSpec.methodBuilder("getProvideKeys")
+          .addAnnotation(Override.class)
+          .addModifiers(PUBLIC)
+          .returns(String[].class)
+          .addStatement("return PROVIDE_KEYS")
+          .build());
+    }
+
+    if (!needsInstance(providerMethods)) {
+      adapterBuilder.addMethod(MethodSpec.methodBuilder("needsInstance")
+          .addAnnotation(Override.class)
+          .addModifiers(PUBLIC)
+          .returns(boolean.class)
+          .addStatement("return false")
+          .build());
+    }
+
     ExecutableElement noArgsConstructor = getNoArgsConstructor(type);
     if (noArgsConstructor != null && isCallableConstructor(noArgsConstructor)) {
       adapterBuilder.addMethod(MethodSpec.methodBuilder("newModule")
@@ -286,6 +355,13 @@ public final class ModuleAdapterProcessor extends AbstractProcessor {
           .build());
     }
 
+    if (!providerMethods.isEmpty() && fastInit()) {
+      addDispatchingBindings(adapterBuilder, type, adapterClassName, providerMethods, library);
+      return JavaFile.builder(adapterClassName.packageName(), adapterBuilder.build())
+          .addFileComment(AdapterJavadocs.GENERATED_BY_DAGGER)
+          .build();
+    }
+
     // Caches.
     Map<ExecutableElement, ClassName> methodToClassName
         = new LinkedHashMap<ExecutableElement, ClassName>();
@@ -302,27 +378,35 @@ public final class ModuleAdapterProcessor extends AbstractProcessor {
       for (ExecutableElement providerMethod : providerMethods) {
         Provides provides = providerMethod.getAnnotation(Provides.class);
         switch (provides.type()) {
+          case ALIAS: {
+            getBindings.addStatement("bindings.contributeProvidesBinding($S, $L)",
+                GeneratorKeys.get(providerMethod), aliasBinding(type, providerMethod));
+            break;
+          }
           case UNIQUE: {
-            getBindings.addStatement("bindings.contributeProvidesBinding($S, new $T(module))",
+            getBindings.addStatement("bindings.contributeProvidesBinding($S, new $T($L))",
                 GeneratorKeys.get(providerMethod),
                 bindingClassName(adapterClassName, providerMethod, methodToClassName,
-                    methodNameToNextId));
+                    methodNameToNextId),
+                moduleArgument(providerMethod));
             break;
           }
           case SET: {
-            getBindings.addStatement("$T.add(bindings, $S, new $T(module))",
+            getBindings.addStatement("$T.add(bindings, $S, new $T($L))",
                 SetBinding.class,
                 GeneratorKeys.getSetKey(providerMethod),
                 bindingClassName(adapterClassName, providerMethod, methodToClassName,
-                    methodNameToNextId));
+                    methodNameToNextId),
+                moduleArgument(providerMethod));
             break;
           }
           case SET_VALUES: {
-            getBindings.addStatement("$T.add(bindings, $S, new $T(module))",
+            getBindings.addStatement("$T.add(bindings, $S, new $T($L))",
                 SetBinding.class,
                 GeneratorKeys.get(providerMethod),
                 bindingClassName(adapterClassName, providerMethod, methodToClassName,
-                    methodNameToNextId));
+                    methodNameToNextId),
+                moduleArgument(providerMethod));
             break;
           }
           default:
@@ -333,6 +417,9 @@ public final class ModuleAdapterProcessor extends AbstractProcessor {
     }
 
     for (ExecutableElement providerMethod : providerMethods) {
+      if (providerMethod.getAnnotation(Provides.class).type() == Provides.Type.ALIAS) {
+        continue; // The linker replaces aliases with their targets, so they need no adapter.
+      }
       adapterBuilder.addType(generateProvidesAdapter(moduleClassName, adapterClassName,
           providerMethod, methodToClassName, methodNameToNextId, library));
     }
@@ -342,6 +429,157 @@ public final class ModuleAdapterProcessor extends AbstractProcessor {
         .build();
   }
 
+  private boolean fastInit() {
+    return Boolean.parseBoolean(processingEnv.getOptions().get(FAST_INIT_OPTION));
+  }
+
+  /**
+   * Adds a {@code getBindings} method to {@code adapterBuilder} that contributes one instance of a
+   * single nested {@code ProvidesAdapter} per {@code @Provides} method, and that nested class.
+   */
+  private void addDispatchingBindings(TypeSpec.Builder adapterBuilder, TypeElement type,
+      ClassName adapterClassName, List<ExecutableElement> providerMethods, boolean library) {
+    ClassName moduleClassName = ClassName.get(type);
+    ClassName bindingClassName = adapterClassName.nestedClass("ProvidesAdapter");
+
+    MethodSpec.Builder getBindings = MethodSpec.methodBuilder("getBindings")
+        .addJavadoc(AdapterJavadocs.GET_DEPENDENCIES_METHOD)
+        .addAnnotation(Override.class)
+        .addModifiers(PUBLIC)
+        .addParameter(BindingsGroup.class, "bindings")
+        .addParameter(moduleClassName, "module");
+    List<ExecutableElement> dispatched = new ArrayList<ExecutableElement>();
+    for (ExecutableElement providerMethod : providerMethods) {
+      String key = GeneratorKeys.get(providerMethod);
+      Provides provides = providerMethod.getAnnotation(Provides.class);
+      if (provides.type() == Provides.Type.ALIAS) {
+        getBindings.addStatement("bindings.contributeProvidesBinding($S, $L)",
+            key, aliasBinding(type, providerMethod));
+        continue;
+      }
+      CodeBlock binding = CodeBlock.builder()
+          .add("new $T(module, $L, $S, $L, $S)", bindingClassName, dispatched.size(), key,
+              providerMethod.getAnnotation(Singleton.class) != null,
+              providerMethod.getSimpleName())
+          .build();
+      dispatched.add(providerMethod);
+      switch (provides.type()) {
+        case UNIQUE:
+          getBindings.addStatement("bindings.contributeProvidesBinding($S, $L)", key, binding);
+          break;
+        case SET:
+          getBindings.addStatement("$T.add(bindings, $S, $L)", SetBinding.class,
+              GeneratorKeys.getSetKey(providerMethod), binding);
+          break;
+        case SET_VALUES:
+          getBindings.addStatement("$T.add(bindings, $S, $L)", SetBinding.class, key, binding);
+          break;
+        default:
+          throw new AssertionError("Unknown @Provides type " + provides.type());
+      }
+    }
+    adapterBuilder.addMethod(getBindings.build());
+    if (!dispatched.isEmpty()) {
+      adapterBuilder.addType(generateDispatchingProvidesAdapter(
+          type, bindingClassName, dispatched, library));
+    }
+  }
+
+  private TypeSpec generateDispatchingProvidesAdapter(TypeElement type, ClassName className,
+      List<ExecutableElement> providerMethods, boolean library) {
+    ClassName moduleClassName = ClassName.get(type);
+    TypeSpec.Builder result = TypeSpec.classBuilder(className.simpleName())
+        .addJavadoc(AdapterJavadocs.DISPATCHING_PROVIDES_TYPE, moduleClassName)
+        .addModifiers(PUBLIC, STATIC, FINAL)
+        .superclass(ParameterizedTypeName.get(ProvidesBinding.class, Object.class));
+
+    CodeBlock.Builder keyIds = CodeBlock.builder().add("{$>$>");
+    for (int i = 0; i < providerMethods.size(); i++) {
+      keyIds.add(i == 0 ? "\n$T.ofAll(" : ",\n$T.ofAll(", KeyIds.class);
+      List<? extends VariableElement> parameters = providerMethods.get(i).getParameters();
+      for (int p = 0; p < parameters.size(); p++) {
+        keyIds.add(p == 0 ? "$S" : ", $S", GeneratorKeys.get(parameters.get(p)));
+      }
+      keyIds.add(")");
+    }
+    keyIds.add("$<$<\n}");
+    result.addField(FieldSpec.builder(int[][].class, KEY_IDS, PRIVATE, STATIC, FINAL)
+        .initializer(keyIds.build())
+        .build());
+    result.addField(moduleClassName, "module", PRIVATE, FINAL);
+    result.addField(int.class, "index", PRIVATE, FINAL);
+    result.addField(ArrayTypeName.of(Util.BINDING_OF_ANY), "parameters", PRIVATE);
+
+    result.addMethod(MethodSpec.constructorBuilder()
+        .addModifiers(PUBLIC)
+        .addParameter(moduleClassName, "module")
+        .addParameter(int.class, "index")
+        .addParameter(String.class, "key")
+        .addParameter(boolean.class, "singleton")
+        .addParameter(String.class, "methodName")
+        .addStatement("super(key, singleton, $S, methodName)", typeToString(type.asType()))
+        .addStatement("this.module = module")
+        .addStatement("this.index = index")
+        .addStatement("setLibrary($L)", library)
+        .build());
+
+    result.addMethod(MethodSpec.methodBuilder("attach")
+        .addJavadoc(AdapterJavadocs.ATTACH_METHOD)
+        .addAnnotation(Override.class)
+        .addModifiers(PUBLIC)
+        .addParameter(Linker.class, "linker")
+        .addStatement("int[] keyIds = $N[index]", KEY_IDS)
+        .addStatement("parameters = new $T<?>[keyIds.length]", Binding.class)
+        .beginControlFlow("for (int i = 0; i < keyIds.length; i++)")
+        .addStatement("parameters[i] = linker.requestBinding("
+            + "keyIds[i], $T.class, getClass().getClassLoader())", moduleClassName)
+        .endControlFlow()
+        .build());
+
+    result.addMethod(MethodSpec.methodBuilder("getDependencies")
+        .addJavadoc(AdapterJavadocs.GET_DEPENDENCIES_METHOD)
+        .addAnnotation(Override.class)
+        .addModifiers(PUBLIC)
+        .addParameter(Util.SET_OF_BINDINGS, "getBindings")
+        .addParameter(Util.SET_OF_BINDINGS, "injectMembersBindings")
+        .addStatement("$T.addAll(getBindings, parameters)", Collections.class)
+        .build());
+
+    MethodSpec.Builder get = MethodSpec.methodBuilder("get")
+        .addAnnotation(Override.class)
+        .addAnnotation(Util.UNCHECKED)
+        .addModifiers(PUBLIC)
+        .returns(Object.class)
+        .beginControlFlow("switch (index)");
+    for (int i = 0; i < providerMethods.size(); i++) {
+      ExecutableElement providerMethod = providerMethods.get(i);
+      CodeBlock.Builder call = CodeBlock.builder()
+          .add("return $L.$N(", receiver(providerMethod, moduleClassName),
+              providerMethod.getSimpleName());
+      List<? extends VariableElement> parameters = providerMethod.getParameters();
+      for (int p = 0; p < parameters.size(); p++) {
+        TypeMirror parameterType = parameters.get(p).asType();
+        if (p != 0) {
+          call.add(", ");
+        }
+        if (getterName(parameterType).equals("get")) {
+          call.add("($T) parameters[$L].get()", Util.injectableType(parameterType), p);
+        } else {
+          call.add("parameters[$L].$N()", p, getterName(parameterType));
+        }
+      }
+      call.add(")");
+      get.addCode("case $L:\n$>", i).addStatement("$L", call.build()).addCode("$<");
+    }
+    get.addCode("default:\n$>")
+        .addStatement("throw new $T(index)", AssertionError.class)
+        .addCode("$<")
+        .endControlFlow();
+    result.addMethod(get.build());
+
+    return result.build();
+  }
+
   private static List<Object> extractDuplicates(Object[] items) {
     List<Object> itemsList = Arrays.asList(items);
     List<Object> duplicateItems = new ArrayList<Object>(itemsList);
@@ -365,6 +603,24 @@ public final class ModuleAdapterProcessor extends AbstractProcessor {
     return result.build();
   }
 
+  /**
+   * Returns the keys of the bindings contributed by {@code providerMethods}, or null if some of
+   * them contribute to sets: set bindings are merged across modules, so they can't be deferred.
+   */
+  private CodeBlock provideKeysInitializer(List<ExecutableElement> providerMethods) {
+    CodeBlock.Builder result = CodeBlock.builder()
+        .add("{ ");
+    for (ExecutableElement providerMethod : providerMethods) {
+      Provides.Type providesType = providerMethod.getAnnotation(Provides.class).type();
+      if (providesType != Provides.Type.UNIQUE && providesType != Provides.Type.ALIAS) {
+        return null;
+      }
+      result.add("$S, ", GeneratorKeys.get(providerMethod));
+    }
+    result.add("}");
+    return result.build();
+  }
+
   private CodeBlock staticInjectionsInitializer(Object[] staticInjections) {
     CodeBlock.Builder result = CodeBlock.builder()
         .add("{ ");
@@ -430,24 +686,39 @@ public final class ModuleAdapterProcessor extends AbstractProcessor {
         .addModifiers(PUBLIC, STATIC, FINAL)
         .superclass(ParameterizedTypeName.get(ClassName.get(ProvidesBinding.class), returnType));
 
-    result.addField(moduleClassName, "module", PRIVATE, FINAL);
+    boolean isStatic = providerMethod.getModifiers().contains(STATIC);
+    if (!isStatic) {
+      result.addField(moduleClassName, "module", PRIVATE, FINAL);
+    }
     for (Element parameter : parameters) {
       result.addField(bindingOf(parameter.asType()), parameterName(parameter), PRIVATE);
     }
+    if (dependent) {
+      List<String> parameterKeys = new ArrayList<String>();
+      for (VariableElement parameter : parameters) {
+        parameterKeys.add(GeneratorKeys.get(parameter));
+      }
+      result.addField(keyIdsField(parameterKeys));
+    }
 
     boolean singleton = providerMethod.getAnnotation(Singleton.class) != null;
     String key = GeneratorKeys.get(providerMethod);
-    result.addMethod(MethodSpec.constructorBuilder()
+    MethodSpec.Builder constructor = MethodSpec.constructorBuilder()
         .addModifiers(PUBLIC)
-        .addParameter(moduleClassName, "module")
         .addStatement("super($S, $L, $S, $S)",
             key,
             (singleton ? "IS_SINGLETON" : "NOT_SINGLETON"),
             typeToString(moduleType),
-            methodName)
-        .addStatement("this.module = module")
-        .addStatement("setLibrary($L)", library)
-        .build());
+            methodName);
+    if (!isStatic) {
+      constructor.addParameter(moduleClassName, "module")
+          .addStatement("this.module = module");
+    }
+    constructor.addStatement("setLibrary($L)", library);
+    if (singleton) {
+      constructor.addStatement("setSelfScoped()");
+    }
+    result.addMethod(constructor.build());
 
     if (dependent) {
       MethodSpec.Builder attachBuilder = MethodSpec.methodBuilder("attach")
@@ -456,13 +727,14 @@ public final class ModuleAdapterProcessor extends AbstractProcessor {
           .addAnnotation(Util.UNCHECKED)
           .addModifiers(PUBLIC)
           .addParameter(Linker.class, "linker");
-      for (VariableElement parameter : parameters) {
-        String parameterKey = GeneratorKeys.get(parameter);
+      for (int i = 0; i < parameters.size(); i++) {
+        VariableElement parameter = parameters.get(i);
         attachBuilder.addStatement(
-            "$N = ($T) linker.requestBinding($S, $T.class, getClass().getClassLoader())",
+            "$N = ($T) linker.requestBinding($N[$L], $T.class, getClass().getClassLoader())",
             parameterName(parameter),
             bindingOf(parameter.asType()),
-            parameterKey,
+            KEY_IDS,
+            i,
             moduleClassName);
       }
       result.addMethod(attachBuilder.build());
@@ -479,24 +751,70 @@ public final class ModuleAdapterProcessor extends AbstractProcessor {
       result.addMethod(getDependenciesBuilder.build());
     }
 
-    MethodSpec.Builder getBuilder = MethodSpec.methodBuilder("get")
-        .addJavadoc(AdapterJavadocs.GET_METHOD, returnType)
-        .addAnnotation(Override.class)
-        .addModifiers(PUBLIC)
-        .returns(returnType)
-        .addCode("return module.$N(", methodName);
+    CodeBlock.Builder call = CodeBlock.builder()
+        .add("return $L.$N(", receiver(providerMethod, moduleClassName), methodName);
     boolean first = true;
     for (Element parameter : parameters) {
-      if (!first) getBuilder.addCode(", ");
-      getBuilder.addCode("$N.get()", parameterName(parameter));
+      if (!first) call.add(", ");
+      call.add("$N.$N()", parameterName(parameter), getterName(parameter.asType()));
       first = false;
     }
-    getBuilder.addCode(");\n");
-    result.addMethod(getBuilder.build());
+    call.add(");\n");
+
+    // Unscoped primitives are created by an unboxed getter, which the boxed get() delegates to.
+    TypeMirror providedType = providerMethod.getReturnType();
+    String getterName = getterName(providedType);
+    if (singleton || getterName.equals("get")) {
+      addGetMethods(result, returnType, call.build(), singleton);
+    } else {
+      addGetMethods(result, returnType,
+          CodeBlock.builder().addStatement("return $N()", getterName).build(), false);
+      result.addMethod(MethodSpec.methodBuilder(getterName)
+          .addJavadoc(AdapterJavadocs.PRIMITIVE_GET_METHOD, providedType)
+          .addAnnotation(Override.class)
+          .addModifiers(PUBLIC)
+          .returns(TypeName.get(providedType))
+          .addCode(call.build())
+          .build());
+    }
 
     return result.build();
   }
 
+  /** Returns true if any binding for {@code providerMethods} invokes a method on the module. */
+  private static boolean needsInstance(List<ExecutableElement> providerMethods) {
+    for (ExecutableElement providerMethod : providerMethods) {
+      if (!providerMethod.getModifiers().contains(STATIC)
+          && providerMethod.getAnnotation(Provides.class).type() != Provides.Type.ALIAS) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Returns an expression creating the binding for the alias method {@code providerMethod}. */
+  private static CodeBlock aliasBinding(TypeElement type, ExecutableElement providerMethod) {
+    return CodeBlock.builder()
+        .add("new $T($S, $S, $S, $S, getClass().getClassLoader())", AliasBinding.class,
+            GeneratorKeys.get(providerMethod),
+            GeneratorKeys.get(providerMethod.getParameters().get(0)),
+            typeToString(type.asType()),
+            providerMethod.getSimpleName())
+        .build();
+  }
+
+  /** Returns the argument passed to the constructor of a provides adapter. */
+  private static String moduleArgument(ExecutableElement providerMethod) {
+    return providerMethod.getModifiers().contains(STATIC) ? "" : "module";
+  }
+
+  /** Returns the expression on which a provides adapter invokes {@code providerMethod}. */
+  private static CodeBlock receiver(ExecutableElement providerMethod, ClassName moduleClassName) {
+    return providerMethod.getModifiers().contains(STATIC)
+        ? CodeBlock.builder().add("$T", moduleClassName).build()
+        : CodeBlock.builder().add("module").build();
+  }
+
   private String parameterName(Element parameter) {
     if (parameter.getSimpleName().contentEquals("module")) {
       return "parameter_" + parameter.getSimpleName().toString();
@@ -20,12 +20,19 @@ import com.google.common.base.Joiner;
 import com.squareup.javapoet.AnnotationSpec;
 import com.squareup.javapoet.ArrayTypeName;
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
 import com.squareup.javapoet.WildcardTypeName;
+import dagger.Assisted;
 import dagger.internal.Binding;
+import dagger.internal.KeyIds;
 import dagger.internal.Keys;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -40,6 +47,7 @@ import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.PackageElement;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
 import javax.lang.model.type.ArrayType;
 import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.ErrorType;
@@ -66,6 +74,8 @@ final class Util {
   public static final AnnotationSpec UNCHECKED = AnnotationSpec.builder(SuppressWarnings.class)
       .addMember("value", "$S", "unchecked")
       .build();
+  // The name of the field created by keyIdsField().
+  static final String KEY_IDS = "KEY_IDS";
 
   private Util() {
   }
@@ -370,6 +380,20 @@ final class Util {
         || type.getModifiers().contains(Modifier.STATIC);
   }
 
+  /**
+   * Returns the parameters of {@code constructor} annotated {@code @Assisted}, which are passed
+   * by the caller of an {@code @AssistedFactory} rather than injected.
+   */
+  public static List<VariableElement> assistedParameters(ExecutableElement constructor) {
+    List<VariableElement> result = new ArrayList<VariableElement>();
+    for (VariableElement parameter : constructor.getParameters()) {
+      if (parameter.getAnnotation(Assisted.class) != null) {
+        result.add(parameter);
+      }
+    }
+    return result;
+  }
+
 
   /**
    * Returns a user-presentable string like {@code coffee.CoffeeModule}.
@@ -396,6 +420,86 @@ final class Util {
     return ParameterizedTypeName.get(ClassName.get(Binding.class), injectableType(type));
   }
 
+  /**
+   * Returns the {@code KEY_IDS} field of an adapter, holding the {@link KeyIds ids} of {@code
+   * keys}. Its {@code attach} method requests the binding for {@code keys.get(i)} by {@code
+   * KEY_IDS[i]}.
+   */
+  static FieldSpec keyIdsField(List<String> keys) {
+    CodeBlock.Builder initializer = CodeBlock.builder().add("$T.ofAll($>$>", KeyIds.class);
+    for (int i = 0; i < keys.size(); i++) {
+      initializer.add(i == 0 ? "\n$S" : ",\n$S", keys.get(i));
+    }
+    initializer.add("$<$<)");
+    return FieldSpec.builder(int[].class, KEY_IDS, Modifier.PRIVATE, Modifier.STATIC,
+        Modifier.FINAL)
+        .initializer(initializer.build())
+        .build();
+  }
+
+  /**
+   * Returns the name of the {@link Binding} method that provides a value of {@code type} without
+   * boxing it, or {@code get} if there is none.
+   */
+  static String getterName(TypeMirror type) {
+    switch (type.getKind()) {
+      case INT:
+        return "getInt";
+      case LONG:
+        return "getLong";
+      case BOOLEAN:
+        return "getBoolean";
+      case DOUBLE:
+        return "getDouble";
+      default:
+        return "get";
+    }
+  }
+
+  /**
+   * Adds a {@code get} method returning {@code type} to {@code adapter}, that runs {@code body}.
+   * For a singleton the body runs at most once, in a private {@code create} method, and its result
+   * is cached in a field of the adapter itself. The caller must mark such an adapter {@link
+   * Binding#setSelfScoped self-scoped} so that the linker doesn't cache it a second time.
+   */
+  static void addGetMethods(TypeSpec.Builder adapter, TypeName type, CodeBlock body,
+      boolean singleton) {
+    MethodSpec.Builder get = MethodSpec.methodBuilder("get")
+        .addJavadoc(AdapterJavadocs.GET_METHOD, type)
+        .addAnnotation(Override.class)
+        .addModifiers(Modifier.PUBLIC)
+        .returns(type);
+    if (!singleton) {
+      adapter.addMethod(get.addCode(body).build());
+      return;
+    }
+    if (!(type instanceof ClassName)) {
+      get.addAnnotation(UNCHECKED); // onlyInstance is either 'UNINITIALIZED' or the type.
+    }
+    adapter.addField(FieldSpec.builder(Object.class, "onlyInstance", Modifier.PRIVATE,
+        Modifier.VOLATILE)
+        .initializer("UNINITIALIZED")
+        .build());
+    adapter.addMethod(get
+        .addStatement("Object result = onlyInstance")
+        .beginControlFlow("if (result == UNINITIALIZED)")
+        .beginControlFlow("synchronized (this)")
+        .addStatement("result = onlyInstance")
+        .beginControlFlow("if (result == UNINITIALIZED)")
+        .addStatement("result = create()")
+        .addStatement("onlyInstance = result")
+        .endControlFlow()
+        .endControlFlow()
+        .endControlFlow()
+        .addStatement("return ($T) result", type)
+        .build());
+    adapter.addMethod(MethodSpec.methodBuilder("create")
+        .addModifiers(Modifier.PRIVATE)
+        .returns(type)
+        .addCode(body)
+        .build());
+  }
+
   /**
    * An exception thrown when a type is not extant (returns as an error type),
    * usually as a result of another processor not having yet generated its types upon
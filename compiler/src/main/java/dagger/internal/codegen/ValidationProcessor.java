@@ -19,11 +19,8 @@ package dagger.internal.codegen;
 import dagger.Module;
 import dagger.Provides;
 import dagger.internal.codegen.Util.CodeGenerationIncompleteException;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.LinkedHashSet;
 import java.util.Set;
 import javax.annotation.processing.AbstractProcessor;
 import javax.annotation.processing.RoundEnvironment;
@@ -34,7 +31,6 @@ import javax.inject.Scope;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Element;
-import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
 import javax.tools.Diagnostic;
 
@@ -52,6 +48,10 @@ import static javax.lang.model.element.Modifier.ABSTRACT;
  *
  *  <p> Warnings for invalid use of scoping annotations can be suppressed
  *  with @SuppressWarnings("scoping")
+ *
+ *  <p> Qualifiers and scopes are an open set, so this processor claims all annotation types in
+ *  order to be told which ones appear in each round. It only visits the elements carrying
+ *  {@code @Provides} or one of those qualifier or scope annotations.
  */
 @SupportedAnnotationTypes({ "*" })
 public final class ValidationProcessor extends AbstractProcessor {
@@ -61,17 +61,14 @@ public final class ValidationProcessor extends AbstractProcessor {
   }
 
   @Override public boolean process(Set<? extends TypeElement> types, RoundEnvironment env) {
-    List<Element> allElements = new ArrayList<Element>();
-    Map<Element, Element> parametersToTheirMethods = new LinkedHashMap<Element, Element>();
-    getAllElements(env, allElements, parametersToTheirMethods);
-    for (Element element : allElements) {
+    for (Element element : getElementsToValidate(types, env)) {
       try {
         validateProvides(element);
       } catch (CodeGenerationIncompleteException e) {
         continue; // Upstream compiler issue in play. Ignore this element.
       }
       validateScoping(element);
-      validateQualifiers(element, parametersToTheirMethods);
+      validateQualifiers(element);
     }
     return false;
   }
@@ -83,7 +80,7 @@ public final class ValidationProcessor extends AbstractProcessor {
     }
   }
 
-  private void validateQualifiers(Element element, Map<Element, Element> parametersToTheirMethods) {
+  private void validateQualifiers(Element element) {
     boolean suppressWarnings =
         element.getAnnotation(SuppressWarnings.class) != null && Arrays.asList(
             element.getAnnotation(SuppressWarnings.class).value()).contains("qualifiers");
@@ -109,8 +106,8 @@ public final class ValidationProcessor extends AbstractProcessor {
           break;
         case PARAMETER:
           numberOfQualifiersOnElement++;
-          if (!isInjectableConstructorParameter(element, parametersToTheirMethods)
-              && !isProvidesMethodParameter(element, parametersToTheirMethods)
+          if (!isInjectableConstructorParameter(element)
+              && !isProvidesMethodParameter(element)
               && !suppressWarnings) {
             warning("Dagger will ignore qualifier annotations on parameters that are not "
                 + "@Inject constructor parameters or @Provides method parameters: "
@@ -162,25 +159,21 @@ public final class ValidationProcessor extends AbstractProcessor {
     }
   }
 
-  private void getAllElements(
-      RoundEnvironment env, List<Element> result, Map<Element, Element> parametersToTheirMethods) {
-    for (Element element : env.getRootElements()) {
-      addAllEnclosed(element, result, parametersToTheirMethods);
-    }
-  }
-
-  private void addAllEnclosed(
-      Element element, List<Element> result, Map<Element, Element> parametersToTheirMethods) {
-    result.add(element);
-    for (Element enclosed : element.getEnclosedElements()) {
-      addAllEnclosed(enclosed, result, parametersToTheirMethods);
-      if (enclosed.getKind() == METHOD || enclosed.getKind() == CONSTRUCTOR) {
-        for (Element parameter : ((ExecutableElement) enclosed).getParameters()) {
-          result.add(parameter);
-          parametersToTheirMethods.put(parameter, enclosed);
-        }
+  /**
+   * Returns the {@code @Provides} methods and the elements annotated with any of the qualifier or
+   * scope annotations among {@code annotations}.
+   */
+  private Set<Element> getElementsToValidate(
+      Set<? extends TypeElement> annotations, RoundEnvironment env) {
+    Set<Element> result = new LinkedHashSet<Element>();
+    result.addAll(env.getElementsAnnotatedWith(Provides.class));
+    for (TypeElement annotation : annotations) {
+      if (annotation.getAnnotation(Qualifier.class) != null
+          || annotation.getAnnotation(Scope.class) != null) {
+        result.addAll(env.getElementsAnnotatedWith(annotation));
       }
     }
+    return result;
   }
 
   private boolean isProvidesMethod(Element element) {
@@ -191,19 +184,17 @@ public final class ValidationProcessor extends AbstractProcessor {
    * @param parameter an {@code Element} whose {@code Kind} is parameter. The {@code Kind} is not
    *        tested here.
    */
-  private boolean isProvidesMethodParameter(
-      Element parameter, Map<Element, Element> parametersToTheirMethods) {
-    return parametersToTheirMethods.get(parameter).getAnnotation(Provides.class) != null;
+  private boolean isProvidesMethodParameter(Element parameter) {
+    return parameter.getEnclosingElement().getAnnotation(Provides.class) != null;
   }
 
   /**
    * @param parameter an {@code Element} whose {@code Kind} is parameter. The {@code Kind} is not
    *        tested here.
    */
-  private boolean isInjectableConstructorParameter(
-      Element parameter, Map<Element, Element> parametersToTheirMethods) {
-    return parametersToTheirMethods.get(parameter).getKind() == CONSTRUCTOR
-        && parametersToTheirMethods.get(parameter).getAnnotation(Inject.class) != null;
+  private boolean isInjectableConstructorParameter(Element parameter) {
+    Element method = parameter.getEnclosingElement();
+    return method.getKind() == CONSTRUCTOR && method.getAnnotation(Inject.class) != null;
   }
 
   private void error(String msg, Element element) {
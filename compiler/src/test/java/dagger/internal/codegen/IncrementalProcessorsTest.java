@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.internal.codegen;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.processing.Processor;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Gradle only compiles incrementally when every processor on the processor path declares itself
+ * incremental, so a processor missing from that list silently slows down every build.
+ */
+@RunWith(JUnit4.class)
+public final class IncrementalProcessorsTest {
+  @Test public void everyProcessorIsIncremental() throws Exception {
+    List<String> processors = readLines("META-INF/services/javax.annotation.processing.Processor");
+    Map<String, String> incremental = new LinkedHashMap<String, String>();
+    for (String line : readLines("META-INF/gradle/incremental.annotation.processors")) {
+      String[] parts = line.split(",");
+      incremental.put(parts[0], parts[1]);
+    }
+    assertThat(incremental.keySet()).containsExactlyElementsIn(processors);
+  }
+
+  @Test public void adapterProcessorsDoNotClaimAllAnnotations() throws Exception {
+    Processor[] isolating = { new InjectAdapterProcessor(), new ModuleAdapterProcessor() };
+    for (Processor processor : isolating) {
+      assertThat(processor.getSupportedAnnotationTypes()).doesNotContain("*");
+    }
+  }
+
+  private static List<String> readLines(String resource) throws IOException {
+    URL url = IncrementalProcessorsTest.class.getClassLoader().getResource(resource);
+    assertThat(url).named(resource).isNotNull();
+    BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), "UTF-8"));
+    try {
+      List<String> result = new ArrayList<String>();
+      for (String line; (line = reader.readLine()) != null;) {
+        line = line.trim();
+        if (!line.isEmpty() && !line.startsWith("#")) {
+          result.add(line);
+        }
+      }
+      return result;
+    } finally {
+      reader.close();
+    }
+  }
+}
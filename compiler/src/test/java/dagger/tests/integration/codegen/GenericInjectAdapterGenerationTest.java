@@ -51,11 +51,15 @@ public final class GenericInjectAdapterGenerationTest {
     JavaFileObject expectedInjectAdapterC =
         JavaFileObjects.forSourceString("Basic$B$$InjectAdapter", ""
             + "import dagger.internal.Binding;\n"
+            + "import dagger.internal.KeyIds;\n"
             + "import dagger.internal.Linker;\n"
             + "import java.lang.Override;\n"
             + "import java.lang.SuppressWarnings;\n"
             + "import java.util.Set;\n"
             + "public final class Basic$B$$InjectAdapter extends Binding<Basic.B> {\n"
+            + "  private static final int[] KEY_IDS = KeyIds.ofAll(\n"
+            + "      \"Basic$Simple\",\n"
+            + "      \"members/Basic$A\");\n"
             + "  private Binding<Basic.Simple> simple;\n"
             + "  private Binding<Basic.A> supertype;\n"
             + "  public Basic$B$$InjectAdapter() {\n"
@@ -64,8 +68,8 @@ public final class GenericInjectAdapterGenerationTest {
             + "  @Override\n"
             + "  @SuppressWarnings(\"unchecked\")\n"
             + "  public void attach(Linker linker) {\n"
-            + "    simple = (Binding<Basic.Simple>) linker.requestBinding(\"Basic$Simple\", Basic.B.class, getClass().getClassLoader());\n"
-            + "    supertype = (Binding<Basic.A>) linker.requestBinding(\"members/Basic$A\", Basic.B.class, getClass().getClassLoader(), false, true);\n"
+            + "    simple = (Binding<Basic.Simple>) linker.requestBinding(KEY_IDS[0], Basic.B.class, getClass().getClassLoader());\n"
+            + "    supertype = (Binding<Basic.A>) linker.requestBinding(KEY_IDS[1], Basic.B.class, getClass().getClassLoader(), false, true);\n"
             + "  }\n"
             + "  @Override\n"
             + "  public void getDependencies(Set<Binding<?>> getBindings, Set<Binding<?>> injectMembersBindings) {\n"
@@ -55,10 +55,17 @@ public final class InjectAdapterGenerationTest {
             + "      \"members/Basic$A\", \"members/Basic$Foo$Bar\", \"members/Basic$Foo$Bar$Baz\"};\n"
             + "  private static final Class<?>[] STATIC_INJECTIONS = {};\n"
             + "  private static final Class<?>[] INCLUDES = {};\n"
+            + "  private static final String[] PROVIDE_KEYS = {};\n"
             + "  public Basic$AModule$$ModuleAdapter() {\n"
             + "    super(Basic.AModule.class, INJECTS, STATIC_INJECTIONS, false, INCLUDES,\n"
             + "      true, false);\n"
             + "  }\n"
+            + "  @Override public String[] getProvideKeys() {\n"
+            + "    return PROVIDE_KEYS;\n"
+            + "  }\n"
+            + "  @Override public boolean needsInstance() {\n" // No @Provides methods use it.
+            + "    return false;\n"
+            + "  }\n"
             + "  @Override public Basic.AModule newModule() {\n"
             + "    return new Basic.AModule();\n"
             + "  }\n"
@@ -124,4 +131,179 @@ public final class InjectAdapterGenerationTest {
             expectedInjectAdapterFooBar, expectedInjectAdapterFooBarBaz);
 
   }
+
+  @Test public void assistedFactoryCallsConstructorDirectly() {
+    JavaFileObject sourceFile = JavaFileObjects.forSourceString("Download", ""
+        + "import dagger.Assisted;\n"
+        + "import dagger.AssistedFactory;\n"
+        + "import javax.inject.Inject;\n"
+        + "class Download {\n"
+        + "  @Inject Download(String client, @Assisted int id) { }\n"
+        + "  @AssistedFactory interface Factory {\n"
+        + "    Download create(int id);\n"
+        + "  }\n"
+        + "}\n"
+    );
+
+    JavaFileObject expectedFactoryAdapter =
+        JavaFileObjects.forSourceString("Download$Factory$$InjectAdapter", ""
+            + "import dagger.internal.Binding;\n"
+            + "import dagger.internal.KeyIds;\n"
+            + "import dagger.internal.Linker;\n"
+            + "import java.lang.Override;\n"
+            + "import java.lang.String;\n"
+            + "import java.lang.SuppressWarnings;\n"
+            + "public final class Download$Factory$$InjectAdapter\n"
+            + "    extends Binding<Download.Factory> {\n"
+            + "  private static final int[] KEY_IDS = KeyIds.ofAll(\"java.lang.String\");\n"
+            + "  private Binding<String> parameter_client;\n"
+            + "  private final Download.Factory factory = new Download.Factory() {\n"
+            + "    @Override public Download create(int id) {\n"
+            + "      Download result = new Download(parameter_client.get(), id);\n"
+            + "      return result;\n"
+            + "    }\n"
+            + "  };\n"
+            + "  public Download$Factory$$InjectAdapter() {\n"
+            + "    super(\"Download$Factory\", null, NOT_SINGLETON, Download.Factory.class);\n"
+            + "  }\n"
+            + "  @Override @SuppressWarnings(\"unchecked\")\n"
+            + "  public void attach(Linker linker) {\n"
+            + "    parameter_client = (Binding<String>) linker.requestBinding(\n"
+            + "        KEY_IDS[0], Download.Factory.class, getClass().getClassLoader());\n"
+            + "  }\n"
+            + "  @Override public Download.Factory get() {\n"
+            + "    return factory;\n"
+            + "  }\n"
+            + "}\n"
+        );
+
+    assertAbout(javaSource())
+        .that(sourceFile)
+        .processedWith(daggerProcessors())
+        .compilesWithoutError()
+        .and()
+        .generatesSources(expectedFactoryAdapter);
+  }
+
+  @Test public void assistedFactoryNamesDontClashWithParameterNames() {
+    JavaFileObject sourceFile = JavaFileObjects.forSourceString("Download", ""
+        + "import dagger.Assisted;\n"
+        + "import dagger.AssistedFactory;\n"
+        + "import javax.inject.Inject;\n"
+        + "class Download {\n"
+        + "  @Inject String label;\n"
+        + "  @Inject Download(String factory, Integer membersInjector, @Assisted int result) { }\n"
+        + "  @AssistedFactory interface Factory {\n"
+        + "    Download create(int result);\n"
+        + "  }\n"
+        + "}\n"
+    );
+
+    JavaFileObject expectedFactoryAdapter =
+        JavaFileObjects.forSourceString("Download$Factory$$InjectAdapter", ""
+            + "import dagger.internal.Binding;\n"
+            + "import dagger.internal.KeyIds;\n"
+            + "import dagger.internal.Linker;\n"
+            + "import java.lang.Integer;\n"
+            + "import java.lang.Override;\n"
+            + "import java.lang.String;\n"
+            + "import java.lang.SuppressWarnings;\n"
+            + "public final class Download$Factory$$InjectAdapter\n"
+            + "    extends Binding<Download.Factory> {\n"
+            + "  private static final int[] KEY_IDS = KeyIds.ofAll(\n"
+            + "      \"java.lang.String\", \"java.lang.Integer\", \"members/Download\");\n"
+            + "  private Binding<String> parameter_factory;\n"
+            + "  private Binding<Integer> parameter_membersInjector;\n"
+            + "  private Binding<Download> membersInjector;\n"
+            + "  private final Download.Factory factory = new Download.Factory() {\n"
+            + "    @Override public Download create(int result_) {\n"
+            + "      Download result = new Download(\n"
+            + "          parameter_factory.get(), parameter_membersInjector.get(), result_);\n"
+            + "      membersInjector.injectMembers(result);\n"
+            + "      return result;\n"
+            + "    }\n"
+            + "  };\n"
+            + "  public Download$Factory$$InjectAdapter() {\n"
+            + "    super(\"Download$Factory\", null, NOT_SINGLETON, Download.Factory.class);\n"
+            + "  }\n"
+            + "  @Override @SuppressWarnings(\"unchecked\")\n"
+            + "  public void attach(Linker linker) {\n"
+            + "    parameter_factory = (Binding<String>) linker.requestBinding(\n"
+            + "        KEY_IDS[0], Download.Factory.class, getClass().getClassLoader());\n"
+            + "    parameter_membersInjector = (Binding<Integer>) linker.requestBinding(\n"
+            + "        KEY_IDS[1], Download.Factory.class, getClass().getClassLoader());\n"
+            + "    membersInjector = (Binding<Download>) linker.requestBinding(\n"
+            + "        KEY_IDS[2], Download.Factory.class, getClass().getClassLoader(),\n"
+            + "        false, true);\n"
+            + "  }\n"
+            + "  @Override public Download.Factory get() {\n"
+            + "    return factory;\n"
+            + "  }\n"
+            + "}\n"
+        );
+
+    assertAbout(javaSource())
+        .that(sourceFile)
+        .processedWith(daggerProcessors())
+        .compilesWithoutError()
+        .and()
+        .generatesSources(expectedFactoryAdapter);
+  }
+
+  @Test public void assistedFactoryParametersMustMatchConstructor() {
+    JavaFileObject sourceFile = JavaFileObjects.forSourceString("Download", ""
+        + "import dagger.Assisted;\n"
+        + "import dagger.AssistedFactory;\n"
+        + "import javax.inject.Inject;\n"
+        + "class Download {\n"
+        + "  @Inject Download(String client, @Assisted int id) { }\n"
+        + "  @AssistedFactory interface Factory {\n"
+        + "    Download create(long id);\n"
+        + "  }\n"
+        + "}\n"
+    );
+
+    assertAbout(javaSource())
+        .that(sourceFile)
+        .processedWith(daggerProcessors())
+        .failsToCompile()
+        .withErrorContaining("must match the @Assisted parameters")
+        .in(sourceFile).onLine(7);
+  }
+
+  @Test public void assistedFactoryMustCreateAssistedType() {
+    JavaFileObject sourceFile = JavaFileObjects.forSourceString("Download", ""
+        + "import dagger.AssistedFactory;\n"
+        + "import javax.inject.Inject;\n"
+        + "class Download {\n"
+        + "  @Inject Download(String client) { }\n"
+        + "  @AssistedFactory interface Factory {\n"
+        + "    Download create();\n"
+        + "  }\n"
+        + "}\n"
+    );
+
+    assertAbout(javaSource())
+        .that(sourceFile)
+        .processedWith(daggerProcessors())
+        .failsToCompile()
+        .withErrorContaining("@Inject constructor has @Assisted parameters")
+        .in(sourceFile).onLine(6);
+  }
+
+  @Test public void assistedParameterOutsideInjectConstructorFails() {
+    JavaFileObject sourceFile = JavaFileObjects.forSourceString("Download", ""
+        + "import dagger.Assisted;\n"
+        + "class Download {\n"
+        + "  Download(@Assisted int id) { }\n"
+        + "}\n"
+    );
+
+    assertAbout(javaSource())
+        .that(sourceFile)
+        .processedWith(daggerProcessors())
+        .failsToCompile()
+        .withErrorContaining("@Assisted is only valid on parameters of an @Inject constructor")
+        .in(sourceFile).onLine(3);
+  }
 }
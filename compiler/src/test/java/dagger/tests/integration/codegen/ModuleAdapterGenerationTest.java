@@ -71,9 +71,13 @@ public final class ModuleAdapterGenerationTest {
             + "      {\"members/Field$A\", \"members/java.lang.String\"};\n"
             + "  private static final Class<?>[] STATIC_INJECTIONS = {};\n"
             + "  private static final Class<?>[] INCLUDES = {};\n"
+            + "  private static final String[] PROVIDE_KEYS = {\"java.lang.String\"};\n"
             + "  public Field$AModule$$ModuleAdapter() {\n"
             + "    super(Field.AModule.class, INJECTS, STATIC_INJECTIONS, false, INCLUDES, true, false);\n"
             + "  }\n"
+            + "  @Override public String[] getProvideKeys() {\n"
+            + "    return PROVIDE_KEYS;\n"
+            + "  }\n"
             + "  @Override public Field.AModule newModule() {\n"
             + "    return new Field.AModule();\n"
             + "  }\n"
@@ -99,6 +103,7 @@ public final class ModuleAdapterGenerationTest {
     JavaFileObject expectedInjectAdapter =
         JavaFileObjects.forSourceString("Field$A$$InjectAdapter", ""
             + "import dagger.internal.Binding;\n"
+            + "import dagger.internal.KeyIds;\n"
             + "import dagger.internal.Linker;\n"
             + "import java.lang.Override;\n"
             + "import java.lang.String;\n"
@@ -106,6 +111,7 @@ public final class ModuleAdapterGenerationTest {
             + "import java.util.Set;\n"
             + "public final class Field$A$$InjectAdapter\n"
             + "    extends Binding<Field.A> {\n"
+            + "  private static final int[] KEY_IDS = KeyIds.ofAll(\"java.lang.String\");\n"
             + "  private Binding<String> name;\n" // for ctor
             + "  public Field$A$$InjectAdapter() {\n"
             + "    super(\"Field$A\", \"members/Field$A\", NOT_SINGLETON, Field.A.class);\n"
@@ -113,7 +119,7 @@ public final class ModuleAdapterGenerationTest {
             + "  @Override @SuppressWarnings(\"unchecked\")\n"
             + "  public void attach(Linker linker) {\n"
             + "    name = (Binding<String>)linker.requestBinding(\n" // binding key is not a class
-            + "      \"java.lang.String\", Field.A.class, getClass().getClassLoader());\n"
+            + "      KEY_IDS[0], Field.A.class, getClass().getClassLoader());\n"
             + "  }\n"
             + "  @Override public void getDependencies(\n"
             + "      Set<Binding<?>> getBindings, Set<Binding<?>> injectMembersBindings) {\n"
@@ -161,9 +167,13 @@ public final class ModuleAdapterGenerationTest {
             + "      {\"members/Field$A\", \"members/java.lang.String\", \"members/Field$B\"};\n"
             + "  private static final Class<?>[] STATIC_INJECTIONS = {};\n"
             + "  private static final Class<?>[] INCLUDES = {};\n"
+            + "  private static final String[] PROVIDE_KEYS = {\"java.lang.String\"};\n"
             + "  public Field$AModule$$ModuleAdapter() {\n"
             + "    super(Field.AModule.class, INJECTS, STATIC_INJECTIONS, false, INCLUDES, true, false);\n"
             + "  }\n"
+            + "  @Override public String[] getProvideKeys() {\n"
+            + "    return PROVIDE_KEYS;\n"
+            + "  }\n"
             + "  @Override public Field.AModule newModule() {\n"
             + "    return new Field.AModule();\n"
             + "  }\n"
@@ -189,6 +199,7 @@ public final class ModuleAdapterGenerationTest {
     JavaFileObject expectedInjectAdapterA =
         JavaFileObjects.forSourceString("Field$A$$InjectAdapter", ""
             + "import dagger.internal.Binding;\n"
+            + "import dagger.internal.KeyIds;\n"
             + "import dagger.internal.Linker;\n"
             + "import java.lang.Override;\n"
             + "import java.lang.String;\n"
@@ -196,6 +207,7 @@ public final class ModuleAdapterGenerationTest {
             + "import java.util.Set;\n"
             + "public final class Field$A$$InjectAdapter\n"
             + "    extends Binding<Field.A> {\n"
+            + "  private static final int[] KEY_IDS = KeyIds.ofAll(\"java.lang.String\");\n"
             + "  private Binding<String> name;\n" // For Constructor.
             + "  public Field$A$$InjectAdapter() {\n"
             + "    super(\"Field$A\", \"members/Field$A\", NOT_SINGLETON, Field.A.class);\n"
@@ -203,7 +215,7 @@ public final class ModuleAdapterGenerationTest {
             + "  @Override @SuppressWarnings(\"unchecked\")\n"
             + "  public void attach(Linker linker) {\n"
             + "    name = (Binding<String>)linker.requestBinding(\n"
-            + "      \"java.lang.String\", Field.A.class, getClass().getClassLoader());\n"
+            + "      KEY_IDS[0], Field.A.class, getClass().getClassLoader());\n"
             + "  }\n"
             + "  @Override public void getDependencies(\n"
             + "      Set<Binding<?>> getBindings, Set<Binding<?>> injectMembersBindings) {\n"
@@ -219,6 +231,7 @@ public final class ModuleAdapterGenerationTest {
     JavaFileObject expectedInjectAdapterB =
         JavaFileObjects.forSourceString("Field$B$$InjectAdapter", ""
             + "import dagger.internal.Binding;\n"
+            + "import dagger.internal.KeyIds;\n"
             + "import dagger.internal.Linker;\n"
             + "import java.lang.Override;\n"
             + "import java.lang.String;\n"
@@ -226,6 +239,7 @@ public final class ModuleAdapterGenerationTest {
             + "import java.util.Set;\n"
             + "public final class Field$B$$InjectAdapter\n"
             + "    extends Binding<Field.B> {\n"
+            + "  private static final int[] KEY_IDS = KeyIds.ofAll(\"java.lang.String\");\n"
             + "  private Binding<String> name;\n" // For field.
             + "  public Field$B$$InjectAdapter() {\n"
             + "    super(\"Field$B\", \"members/Field$B\", NOT_SINGLETON, Field.B.class);\n"
@@ -233,7 +247,7 @@ public final class ModuleAdapterGenerationTest {
             + "  @Override @SuppressWarnings(\"unchecked\")\n"
             + "  public void attach(Linker linker) {\n"
             + "    name = (Binding<String>)linker.requestBinding(\n"
-            + "      \"java.lang.String\", Field.B.class, getClass().getClassLoader());\n"
+            + "      KEY_IDS[0], Field.B.class, getClass().getClassLoader());\n"
             + "  }\n"
             + "  @Override public void getDependencies(\n"
             + "      Set<Binding<?>> getBindings, Set<Binding<?>> injectMembersBindings) {\n"
@@ -289,6 +303,528 @@ public final class ModuleAdapterGenerationTest {
         .compilesWithoutError();
   }
 
+  @Test public void fastInitSharesOneProvidesAdapter() {
+    JavaFileObject sourceFile = JavaFileObjects.forSourceString("Field", ""
+        + "import dagger.Module;\n"
+        + "import dagger.Provides;\n"
+        + "import javax.inject.Singleton;\n"
+        + "class Field {\n"
+        + "  @Module(injects = Integer.class)\n"
+        + "  static class AModule {\n"
+        + "    @Provides String name() { return \"foo\"; }\n"
+        + "    @Provides @Singleton Integer length(String module) { return module.length(); }\n"
+        + "  }\n"
+        + "}\n"
+    );
+
+    JavaFileObject expectedModuleAdapter =
+        JavaFileObjects.forSourceString("Field$AModule$$ModuleAdapter", ""
+            + "import dagger.internal.Binding;\n"
+            + "import dagger.internal.BindingsGroup;\n"
+            + "import dagger.internal.KeyIds;\n"
+            + "import dagger.internal.Linker;\n"
+            + "import dagger.internal.ModuleAdapter;\n"
+            + "import dagger.internal.ProvidesBinding;\n"
+            + "import java.lang.AssertionError;\n"
+            + "import java.lang.Class;\n"
+            + "import java.lang.Object;\n"
+            + "import java.lang.Override;\n"
+            + "import java.lang.String;\n"
+            + "import java.lang.SuppressWarnings;\n"
+            + "import java.util.Collections;\n"
+            + "import java.util.Set;\n"
+            + "public final class Field$AModule$$ModuleAdapter\n"
+            + "    extends ModuleAdapter<Field.AModule> {\n"
+            + "  private static final String[] INJECTS = {\"members/java.lang.Integer\"};\n"
+            + "  private static final Class<?>[] STATIC_INJECTIONS = {};\n"
+            + "  private static final Class<?>[] INCLUDES = {};\n"
+            + "  private static final String[] PROVIDE_KEYS = {\"java.lang.String\", \"java.lang.Integer\"};\n"
+            + "  public Field$AModule$$ModuleAdapter() {\n"
+            + "    super(Field.AModule.class, INJECTS, STATIC_INJECTIONS, false, INCLUDES, true, false);\n"
+            + "  }\n"
+            + "  @Override public String[] getProvideKeys() {\n"
+            + "    return PROVIDE_KEYS;\n"
+            + "  }\n"
+            + "  @Override public Field.AModule newModule() {\n"
+            + "    return new Field.AModule();\n"
+            + "  }\n"
+            + "  @Override public void getBindings(BindingsGroup bindings, Field.AModule module) {\n"
+            + "    bindings.contributeProvidesBinding(\"java.lang.String\",\n"
+            + "        new ProvidesAdapter(module, 0, \"java.lang.String\", false, \"name\"));\n"
+            + "    bindings.contributeProvidesBinding(\"java.lang.Integer\",\n"
+            + "        new ProvidesAdapter(module, 1, \"java.lang.Integer\", true, \"length\"));\n"
+            + "  }\n"
+            + "  public static final class ProvidesAdapter extends ProvidesBinding<Object> {\n"
+            + "    private static final int[][] KEY_IDS = {\n"
+            + "        KeyIds.ofAll(),\n"
+            + "        KeyIds.ofAll(\"java.lang.String\")\n"
+            + "    };\n"
+            + "    private final Field.AModule module;\n"
+            + "    private final int index;\n"
+            + "    private Binding<?>[] parameters;\n"
+            + "    public ProvidesAdapter(Field.AModule module, int index, String key,\n"
+            + "        boolean singleton, String methodName) {\n"
+            + "      super(key, singleton, \"Field.AModule\", methodName);\n"
+            + "      this.module = module;\n"
+            + "      this.index = index;\n"
+            + "      setLibrary(false);\n"
+            + "    }\n"
+            + "    @Override public void attach(Linker linker) {\n"
+            + "      int[] keyIds = KEY_IDS[index];\n"
+            + "      parameters = new Binding<?>[keyIds.length];\n"
+            + "      for (int i = 0; i < keyIds.length; i++) {\n"
+            + "        parameters[i] = linker.requestBinding(\n"
+            + "            keyIds[i], Field.AModule.class, getClass().getClassLoader());\n"
+            + "      }\n"
+            + "    }\n"
+            + "    @Override public void getDependencies(\n"
+            + "        Set<Binding<?>> getBindings, Set<Binding<?>> injectMembersBindings) {\n"
+            + "      Collections.addAll(getBindings, parameters);\n"
+            + "    }\n"
+            + "    @Override @SuppressWarnings(\"unchecked\") public Object get() {\n"
+            + "      switch (index) {\n"
+            + "        case 0:\n"
+            + "          return module.name();\n"
+            + "        case 1:\n"
+            + "          return module.length((String) parameters[0].get());\n"
+            + "        default:\n"
+            + "          throw new AssertionError(index);\n"
+            + "      }\n"
+            + "    }\n"
+            + "  }\n"
+            + "}\n"
+        );
+
+    assertAbout(javaSource())
+        .that(sourceFile)
+        .withCompilerOptions("-Adagger.fastInit=true")
+        .processedWith(daggerProcessors())
+        .compilesWithoutError()
+        .and()
+        .generatesSources(expectedModuleAdapter);
+  }
+
+  @Test public void staticProvidesMethodsNeedNoModuleInstance() {
+    JavaFileObject sourceFile = JavaFileObjects.forSourceString("Field", ""
+        + "import dagger.Module;\n"
+        + "import dagger.Provides;\n"
+        + "class Field {\n"
+        + "  @Module(injects = String.class)\n"
+        + "  static class AModule { @Provides static String name() { return \"foo\"; }}\n"
+        + "}\n"
+    );
+
+    JavaFileObject expectedModuleAdapter =
+        JavaFileObjects.forSourceString("Field$AModule$$ModuleAdapter", ""
+            + "import dagger.internal.BindingsGroup;\n"
+            + "import dagger.internal.ModuleAdapter;\n"
+            + "import dagger.internal.ProvidesBinding;\n"
+            + "import java.lang.Class;\n"
+            + "import java.lang.Override;\n"
+            + "import java.lang.String;\n"
+            + "public final class Field$AModule$$ModuleAdapter\n"
+            + "    extends ModuleAdapter<Field.AModule> {\n"
+            + "  private static final String[] INJECTS = {\"members/java.lang.String\"};\n"
+            + "  private static final Class<?>[] STATIC_INJECTIONS = {};\n"
+            + "  private static final Class<?>[] INCLUDES = {};\n"
+            + "  private static final String[] PROVIDE_KEYS = {\"java.lang.String\"};\n"
+            + "  public Field$AModule$$ModuleAdapter() {\n"
+            + "    super(Field.AModule.class, INJECTS, STATIC_INJECTIONS, false, INCLUDES, true, false);\n"
+            + "  }\n"
+            + "  @Override public String[] getProvideKeys() {\n"
+            + "    return PROVIDE_KEYS;\n"
+            + "  }\n"
+            + "  @Override public boolean needsInstance() {\n"
+            + "    return false;\n"
+            + "  }\n"
+            + "  @Override public Field.AModule newModule() {\n"
+            + "    return new Field.AModule();\n"
+            + "  }\n"
+            + "  @Override public void getBindings(BindingsGroup bindings, Field.AModule module) {\n"
+            + "    bindings.contributeProvidesBinding(\"java.lang.String\",\n"
+            + "        new NameProvidesAdapter());\n" // no module reference
+            + "  }\n"
+            + "  public static final class NameProvidesAdapter\n"
+            + "      extends ProvidesBinding<String> {\n"
+            + "    public NameProvidesAdapter() {\n"
+            + "      super(\"java.lang.String\", NOT_SINGLETON, \"Field.AModule\", \"name\");\n"
+            + "      setLibrary(false);\n"
+            + "    }\n"
+            + "    @Override public String get() {\n"
+            + "      return Field.AModule.name();\n"
+            + "    }\n"
+            + "  }\n"
+            + "}\n"
+        );
+
+    assertAbout(javaSource())
+        .that(sourceFile)
+        .processedWith(daggerProcessors())
+        .compilesWithoutError()
+        .and()
+        .generatesSources(expectedModuleAdapter);
+  }
+
+  @Test public void singletonAdaptersHoldTheirOwnInstance() {
+    JavaFileObject sourceFile = JavaFileObjects.forSourceString("Field", ""
+        + "import dagger.Module;\n"
+        + "import dagger.Provides;\n"
+        + "import javax.inject.Inject;\n"
+        + "import javax.inject.Singleton;\n"
+        + "class Field {\n"
+        + "  @Singleton static class A { @Inject A() {} }\n"
+        + "  @Module(injects = { A.class, String.class })\n"
+        + "  static class AModule { @Provides @Singleton String name() { return \"foo\"; }}\n"
+        + "}\n"
+    );
+
+    JavaFileObject expectedModuleAdapter =
+        JavaFileObjects.forSourceString("Field$AModule$$ModuleAdapter", ""
+            + "import dagger.internal.BindingsGroup;\n"
+            + "import dagger.internal.ModuleAdapter;\n"
+            + "import dagger.internal.ProvidesBinding;\n"
+            + "import java.lang.Class;\n"
+            + "import java.lang.Object;\n"
+            + "import java.lang.Override;\n"
+            + "import java.lang.String;\n"
+            + "public final class Field$AModule$$ModuleAdapter\n"
+            + "    extends ModuleAdapter<Field.AModule> {\n"
+            + "  private static final String[] INJECTS = \n"
+            + "      {\"members/Field$A\", \"members/java.lang.String\"};\n"
+            + "  private static final Class<?>[] STATIC_INJECTIONS = {};\n"
+            + "  private static final Class<?>[] INCLUDES = {};\n"
+            + "  private static final String[] PROVIDE_KEYS = {\"java.lang.String\"};\n"
+            + "  public Field$AModule$$ModuleAdapter() {\n"
+            + "    super(Field.AModule.class, INJECTS, STATIC_INJECTIONS, false, INCLUDES, true, false);\n"
+            + "  }\n"
+            + "  @Override public String[] getProvideKeys() {\n"
+            + "    return PROVIDE_KEYS;\n"
+            + "  }\n"
+            + "  @Override public Field.AModule newModule() {\n"
+            + "    return new Field.AModule();\n"
+            + "  }\n"
+            + "  @Override public void getBindings(BindingsGroup bindings, Field.AModule module) {\n"
+            + "    bindings.contributeProvidesBinding(\"java.lang.String\",\n"
+            + "        new NameProvidesAdapter(module));\n"
+            + "  }\n"
+            + "  public static final class NameProvidesAdapter\n"
+            + "      extends ProvidesBinding<String> {\n"
+            + "    private final Field.AModule module;\n"
+            + "    private volatile Object onlyInstance = UNINITIALIZED;\n"
+            + "    public NameProvidesAdapter(Field.AModule module) {\n"
+            + "      super(\"java.lang.String\", IS_SINGLETON, \"Field.AModule\", \"name\");\n"
+            + "      this.module = module;\n"
+            + "      setLibrary(false);\n"
+            + "      setSelfScoped();\n" // Linker.scope() won't wrap it.
+            + "    }\n"
+            + "    @Override public String get() {\n"
+            + "      Object result = onlyInstance;\n"
+            + "      if (result == UNINITIALIZED) {\n"
+            + "        synchronized (this) {\n"
+            + "          result = onlyInstance;\n"
+            + "          if (result == UNINITIALIZED) {\n"
+            + "            result = create();\n"
+            + "            onlyInstance = result;\n"
+            + "          }\n"
+            + "        }\n"
+            + "      }\n"
+            + "      return (String) result;\n"
+            + "    }\n"
+            + "    private String create() {\n"
+            + "      return module.name();\n"
+            + "    }\n"
+            + "  }\n"
+            + "}\n"
+        );
+
+    JavaFileObject expectedInjectAdapter =
+        JavaFileObjects.forSourceString("Field$A$$InjectAdapter", ""
+            + "import dagger.internal.Binding;\n"
+            + "import java.lang.Object;\n"
+            + "import java.lang.Override;\n"
+            + "public final class Field$A$$InjectAdapter extends Binding<Field.A> {\n"
+            + "  private volatile Object onlyInstance = UNINITIALIZED;\n"
+            + "  public Field$A$$InjectAdapter() {\n"
+            + "    super(\"Field$A\", \"members/Field$A\", IS_SINGLETON, Field.A.class);\n"
+            + "    setSelfScoped();\n"
+            + "  }\n"
+            + "  @Override public Field.A get() {\n"
+            + "    Object result = onlyInstance;\n"
+            + "    if (result == UNINITIALIZED) {\n"
+            + "      synchronized (this) {\n"
+            + "        result = onlyInstance;\n"
+            + "        if (result == UNINITIALIZED) {\n"
+            + "          result = create();\n"
+            + "          onlyInstance = result;\n"
+            + "        }\n"
+            + "      }\n"
+            + "    }\n"
+            + "    return (Field.A) result;\n"
+            + "  }\n"
+            + "  private Field.A create() {\n"
+            + "    Field.A result = new Field.A();\n"
+            + "    return result;\n"
+            + "  }\n"
+            + "}\n"
+        );
+
+    assertAbout(javaSource())
+        .that(sourceFile)
+        .processedWith(daggerProcessors())
+        .compilesWithoutError()
+        .and()
+        .generatesSources(expectedModuleAdapter, expectedInjectAdapter);
+  }
+
+  @Test public void primitivesAreProvidedWithoutBoxing() {
+    JavaFileObject sourceFile = JavaFileObjects.forSourceString("Field", ""
+        + "import dagger.Module;\n"
+        + "import dagger.Provides;\n"
+        + "import javax.inject.Inject;\n"
+        + "class Field {\n"
+        + "  static class A { @Inject long timeout; }\n"
+        + "  @Module(injects = A.class)\n"
+        + "  static class AModule { @Provides long timeout(int seconds) { return seconds * 1000L; }\n"
+        + "    @Provides int seconds() { return 1; }}\n"
+        + "}\n"
+    );
+
+    JavaFileObject expectedModuleAdapter =
+        JavaFileObjects.forSourceString("Field$AModule$$ModuleAdapter", ""
+            + "import dagger.internal.Binding;\n"
+            + "import dagger.internal.BindingsGroup;\n"
+            + "import dagger.internal.KeyIds;\n"
+            + "import dagger.internal.Linker;\n"
+            + "import dagger.internal.ModuleAdapter;\n"
+            + "import dagger.internal.ProvidesBinding;\n"
+            + "import java.lang.Class;\n"
+            + "import java.lang.Integer;\n"
+            + "import java.lang.Long;\n"
+            + "import java.lang.Override;\n"
+            + "import java.lang.String;\n"
+            + "import java.lang.SuppressWarnings;\n"
+            + "import java.util.Set;\n"
+            + "public final class Field$AModule$$ModuleAdapter\n"
+            + "    extends ModuleAdapter<Field.AModule> {\n"
+            + "  private static final String[] INJECTS = {\"members/Field$A\"};\n"
+            + "  private static final Class<?>[] STATIC_INJECTIONS = {};\n"
+            + "  private static final Class<?>[] INCLUDES = {};\n"
+            + "  private static final String[] PROVIDE_KEYS = \n"
+            + "      {\"java.lang.Long\", \"java.lang.Integer\"};\n"
+            + "  public Field$AModule$$ModuleAdapter() {\n"
+            + "    super(Field.AModule.class, INJECTS, STATIC_INJECTIONS, false, INCLUDES, true, false);\n"
+            + "  }\n"
+            + "  @Override public String[] getProvideKeys() {\n"
+            + "    return PROVIDE_KEYS;\n"
+            + "  }\n"
+            + "  @Override public Field.AModule newModule() {\n"
+            + "    return new Field.AModule();\n"
+            + "  }\n"
+            + "  @Override public void getBindings(BindingsGroup bindings, Field.AModule module) {\n"
+            + "    bindings.contributeProvidesBinding(\"java.lang.Long\",\n"
+            + "        new TimeoutProvidesAdapter(module));\n"
+            + "    bindings.contributeProvidesBinding(\"java.lang.Integer\",\n"
+            + "        new SecondsProvidesAdapter(module));\n"
+            + "  }\n"
+            + "  public static final class TimeoutProvidesAdapter\n"
+            + "      extends ProvidesBinding<Long> {\n"
+            + "    private static final int[] KEY_IDS = KeyIds.ofAll(\"java.lang.Integer\");\n"
+            + "    private final Field.AModule module;\n"
+            + "    private Binding<Integer> seconds;\n"
+            + "    public TimeoutProvidesAdapter(Field.AModule module) {\n"
+            + "      super(\"java.lang.Long\", NOT_SINGLETON, \"Field.AModule\", \"timeout\");\n"
+            + "      this.module = module;\n"
+            + "      setLibrary(false);\n"
+            + "    }\n"
+            + "    @Override @SuppressWarnings(\"unchecked\")\n"
+            + "    public void attach(Linker linker) {\n"
+            + "      seconds = (Binding<Integer>) linker.requestBinding(\n"
+            + "          KEY_IDS[0], Field.AModule.class, getClass().getClassLoader());\n"
+            + "    }\n"
+            + "    @Override public void getDependencies(\n"
+            + "        Set<Binding<?>> getBindings, Set<Binding<?>> injectMembersBindings) {\n"
+            + "      getBindings.add(seconds);\n"
+            + "    }\n"
+            + "    @Override public Long get() {\n"
+            + "      return getLong();\n" // Boxes only when asked for a Long.
+            + "    }\n"
+            + "    @Override public long getLong() {\n"
+            + "      return module.timeout(seconds.getInt());\n"
+            + "    }\n"
+            + "  }\n"
+            + "  public static final class SecondsProvidesAdapter\n"
+            + "      extends ProvidesBinding<Integer> {\n"
+            + "    private final Field.AModule module;\n"
+            + "    public SecondsProvidesAdapter(Field.AModule module) {\n"
+            + "      super(\"java.lang.Integer\", NOT_SINGLETON, \"Field.AModule\", \"seconds\");\n"
+            + "      this.module = module;\n"
+            + "      setLibrary(false);\n"
+            + "    }\n"
+            + "    @Override public Integer get() {\n"
+            + "      return getInt();\n"
+            + "    }\n"
+            + "    @Override public int getInt() {\n"
+            + "      return module.seconds();\n"
+            + "    }\n"
+            + "  }\n"
+            + "}\n"
+        );
+
+    JavaFileObject expectedInjectAdapter =
+        JavaFileObjects.forSourceString("Field$A$$InjectAdapter", ""
+            + "import dagger.internal.Binding;\n"
+            + "import dagger.internal.KeyIds;\n"
+            + "import dagger.internal.Linker;\n"
+            + "import java.lang.Long;\n"
+            + "import java.lang.Override;\n"
+            + "import java.lang.SuppressWarnings;\n"
+            + "import java.util.Set;\n"
+            + "public final class Field$A$$InjectAdapter extends Binding<Field.A> {\n"
+            + "  private static final int[] KEY_IDS = KeyIds.ofAll(\"java.lang.Long\");\n"
+            + "  private Binding<Long> timeout;\n"
+            + "  public Field$A$$InjectAdapter() {\n"
+            + "    super(\"Field$A\", \"members/Field$A\", NOT_SINGLETON, Field.A.class);\n"
+            + "  }\n"
+            + "  @Override @SuppressWarnings(\"unchecked\")\n"
+            + "  public void attach(Linker linker) {\n"
+            + "    timeout = (Binding<Long>) linker.requestBinding(\n"
+            + "        KEY_IDS[0], Field.A.class, getClass().getClassLoader());\n"
+            + "  }\n"
+            + "  @Override public void getDependencies(\n"
+            + "      Set<Binding<?>> getBindings, Set<Binding<?>> injectMembersBindings) {\n"
+            + "    injectMembersBindings.add(timeout);\n"
+            + "  }\n"
+            + "  @Override public Field.A get() {\n"
+            + "    Field.A result = new Field.A();\n"
+            + "    injectMembers(result);\n"
+            + "    return result;\n"
+            + "  }\n"
+            + "  @Override public void injectMembers(Field.A object) {\n"
+            + "    object.timeout = timeout.getLong();\n"
+            + "  }\n"
+            + "}\n"
+        );
+
+    assertAbout(javaSource())
+        .that(sourceFile)
+        .processedWith(daggerProcessors())
+        .compilesWithoutError()
+        .and()
+        .generatesSources(expectedModuleAdapter, expectedInjectAdapter);
+  }
+
+  @Test public void aliasesNeedNoProvidesAdapter() {
+    JavaFileObject sourceFile = JavaFileObjects.forSourceString("Field", ""
+        + "import dagger.Module;\n"
+        + "import dagger.Provides;\n"
+        + "import javax.inject.Inject;\n"
+        + "class Field {\n"
+        + "  interface A {}\n"
+        + "  static class AImpl implements A { @Inject AImpl() {} }\n"
+        + "  @Module(injects = A.class)\n"
+        + "  static class AModule {\n"
+        + "    @Provides(type = Provides.Type.ALIAS) A a(AImpl impl) { return impl; }\n"
+        + "  }\n"
+        + "}\n"
+    );
+
+    JavaFileObject expectedModuleAdapter =
+        JavaFileObjects.forSourceString("Field$AModule$$ModuleAdapter", ""
+            + "import dagger.internal.AliasBinding;\n"
+            + "import dagger.internal.BindingsGroup;\n"
+            + "import dagger.internal.ModuleAdapter;\n"
+            + "import java.lang.Class;\n"
+            + "import java.lang.Override;\n"
+            + "import java.lang.String;\n"
+            + "public final class Field$AModule$$ModuleAdapter\n"
+            + "    extends ModuleAdapter<Field.AModule> {\n"
+            + "  private static final String[] INJECTS = {\"Field$A\"};\n"
+            + "  private static final Class<?>[] STATIC_INJECTIONS = {};\n"
+            + "  private static final Class<?>[] INCLUDES = {};\n"
+            + "  private static final String[] PROVIDE_KEYS = {\"Field$A\"};\n"
+            + "  public Field$AModule$$ModuleAdapter() {\n"
+            + "    super(Field.AModule.class, INJECTS, STATIC_INJECTIONS, false, INCLUDES, true, false);\n"
+            + "  }\n"
+            + "  @Override public String[] getProvideKeys() {\n"
+            + "    return PROVIDE_KEYS;\n"
+            + "  }\n"
+            + "  @Override public boolean needsInstance() {\n"
+            + "    return false;\n"
+            + "  }\n"
+            + "  @Override public Field.AModule newModule() {\n"
+            + "    return new Field.AModule();\n"
+            + "  }\n"
+            + "  @Override public void getBindings(BindingsGroup bindings, Field.AModule module) {\n"
+            + "    bindings.contributeProvidesBinding(\"Field$A\", new AliasBinding(\"Field$A\",\n"
+            + "        \"Field$AImpl\", \"Field.AModule\", \"a\", getClass().getClassLoader()));\n"
+            + "  }\n"
+            + "}\n"
+        );
+
+    assertAbout(javaSource())
+        .that(sourceFile)
+        .processedWith(daggerProcessors())
+        .compilesWithoutError()
+        .and()
+        .generatesSources(expectedModuleAdapter);
+  }
+
+  @Test public void aliasWithoutOneParameterFails() {
+    JavaFileObject module = JavaFileObjects.forSourceString("Test", ""
+        + "import dagger.Module;\n"
+        + "import dagger.Provides;\n"
+        + "@Module(library = true)\n"
+        + "class Test {\n"
+        + "  @Provides(type = Provides.Type.ALIAS) CharSequence a() { return \"\"; }\n"
+        + "}\n"
+    );
+
+    assertAbout(javaSource())
+        .that(module)
+        .processedWith(daggerProcessors())
+        .failsToCompile()
+        .withErrorContaining("@Provides(type = ALIAS) methods must have exactly one parameter")
+        .in(module).onLine(5);
+  }
+
+  @Test public void aliasOfUnrelatedTypeFails() {
+    JavaFileObject module = JavaFileObjects.forSourceString("Test", ""
+        + "import dagger.Module;\n"
+        + "import dagger.Provides;\n"
+        + "@Module(library = true)\n"
+        + "class Test {\n"
+        + "  @Provides(type = Provides.Type.ALIAS) Integer a(String s) { return null; }\n"
+        + "}\n"
+    );
+
+    assertAbout(javaSource())
+        .that(module)
+        .processedWith(daggerProcessors())
+        .failsToCompile()
+        .withErrorContaining("methods must return a supertype of their parameter")
+        .in(module).onLine(5);
+  }
+
+  @Test public void scopedAliasFails() {
+    JavaFileObject module = JavaFileObjects.forSourceString("Test", ""
+        + "import dagger.Module;\n"
+        + "import dagger.Provides;\n"
+        + "import javax.inject.Singleton;\n"
+        + "@Module(library = true)\n"
+        + "class Test {\n"
+        + "  @Provides(type = Provides.Type.ALIAS) @Singleton\n"
+        + "  CharSequence a(String s) { return s; }\n"
+        + "}\n"
+    );
+
+    assertAbout(javaSource())
+        .that(module)
+        .processedWith(daggerProcessors())
+        .failsToCompile()
+        .withErrorContaining("@Provides(type = ALIAS) methods must not be scoped")
+        .in(module).onLine(7);
+  }
+
   @Test public void duplicateInjectsFails() {
     JavaFileObject module = JavaFileObjects.forSourceString("Test", ""
         + "import dagger.Module;\n"
@@ -325,4 +861,137 @@ public final class ModuleAdapterGenerationTest {
         .withErrorContaining("'includes' list contains duplicate entries: [AModule]")
         .in(module).onLine(7);
   }
+
+  @Test public void rootGraphAdapterCreatesEveryAdapterItsGraphUses() {
+    JavaFileObject sourceFile = JavaFileObjects.forSourceString("Root", ""
+        + "import dagger.Module;\n"
+        + "import dagger.Provides;\n"
+        + "import javax.inject.Inject;\n"
+        + "class Root {\n"
+        + "  static class Dependency { @Inject Dependency() { } }\n"
+        + "  static class Entry { @Inject Entry(Dependency dependency, String string) { } }\n"
+        + "  static class Statics { @Inject static Dependency dependency; }\n"
+        + "  @Module(injects = Entry.class, staticInjections = Statics.class)\n"
+        + "  static class RootModule {\n"
+        + "    @Provides String provideString() { return \"string\"; }\n"
+        + "  }\n"
+        + "}\n"
+    );
+
+    JavaFileObject expectedGraphAdapter =
+        JavaFileObjects.forSourceString("Root$RootModule$$GraphAdapter", ""
+            + "import dagger.internal.Binding;\n"
+            + "import dagger.internal.GraphAdapter;\n"
+            + "import dagger.internal.ModuleAdapter;\n"
+            + "import dagger.internal.StaticInjection;\n"
+            + "import java.lang.AssertionError;\n"
+            + "import java.lang.Override;\n"
+            + "import java.lang.String;\n"
+            + "public final class Root$RootModule$$GraphAdapter extends GraphAdapter {\n"
+            + "  private static final String[] MODULE_ADAPTERS = { \"Root$RootModule\", };\n"
+            + "  private static final String[] INJECT_ADAPTERS = {"
+            + " \"Root$Dependency\", \"Root$Entry\", };\n"
+            + "  private static final String[] STATIC_INJECTIONS = { \"Root$Statics\", };\n"
+            + "  public Root$RootModule$$GraphAdapter() {\n"
+            + "    super(MODULE_ADAPTERS, INJECT_ADAPTERS, STATIC_INJECTIONS);\n"
+            + "  }\n"
+            + "  @Override protected ModuleAdapter<?> newModuleAdapter(int index) {\n"
+            + "    switch (index) {\n"
+            + "      case 0:\n"
+            + "        return new Root$RootModule$$ModuleAdapter();\n"
+            + "      default:\n"
+            + "        throw new AssertionError(index);\n"
+            + "    }\n"
+            + "  }\n"
+            + "  @Override protected Binding<?> newInjectAdapter(int index) {\n"
+            + "    switch (index) {\n"
+            + "      case 0:\n"
+            + "        return new Root$Dependency$$InjectAdapter();\n"
+            + "      case 1:\n"
+            + "        return new Root$Entry$$InjectAdapter();\n"
+            + "      default:\n"
+            + "        throw new AssertionError(index);\n"
+            + "    }\n"
+            + "  }\n"
+            + "  @Override protected StaticInjection newStaticInjection(int index) {\n"
+            + "    switch (index) {\n"
+            + "      case 0:\n"
+            + "        return new Root$Statics$$StaticInjection();\n"
+            + "      default:\n"
+            + "        throw new AssertionError(index);\n"
+            + "    }\n"
+            + "  }\n"
+            + "}\n"
+        );
+
+    assertAbout(javaSource())
+        .that(sourceFile)
+        .processedWith(daggerProcessors())
+        .compilesWithoutError()
+        .and()
+        .generatesSources(expectedGraphAdapter);
+  }
+
+  @Test public void extensionGraphAdapterOmitsWhatTheBaseGraphHas() {
+    JavaFileObject sourceFile = JavaFileObjects.forSourceString("Extension", ""
+        + "import dagger.Module;\n"
+        + "import javax.inject.Inject;\n"
+        + "class Extension {\n"
+        + "  static class Shared { @Inject Shared() { } }\n"
+        + "  static class Request { @Inject Request(Shared shared) { } }\n"
+        + "  @Module(injects = Shared.class)\n"
+        + "  static class Parent { }\n"
+        + "  @Module(addsTo = Parent.class, injects = Request.class)\n"
+        + "  static class Child { }\n"
+        + "}\n"
+    );
+
+    JavaFileObject expectedGraphAdapter =
+        JavaFileObjects.forSourceString("Extension$Child$$GraphAdapter", ""
+            + "import dagger.internal.Binding;\n"
+            + "import dagger.internal.GraphAdapter;\n"
+            + "import dagger.internal.ModuleAdapter;\n"
+            + "import dagger.internal.StaticInjection;\n"
+            + "import java.lang.AssertionError;\n"
+            + "import java.lang.Override;\n"
+            + "import java.lang.String;\n"
+            + "public final class Extension$Child$$GraphAdapter extends GraphAdapter {\n"
+            + "  private static final String[] MODULE_ADAPTERS = { \"Extension$Child\", };\n"
+            + "  private static final String[] INJECT_ADAPTERS = { \"Extension$Request\", };\n"
+            + "  private static final String[] STATIC_INJECTIONS = { };\n"
+            + "  public Extension$Child$$GraphAdapter() {\n"
+            + "    super(MODULE_ADAPTERS, INJECT_ADAPTERS, STATIC_INJECTIONS, true);\n"
+            + "  }\n"
+            + "  @Override protected ModuleAdapter<?> newModuleAdapter(int index) {\n"
+            + "    switch (index) {\n"
+            + "      case 0:\n"
+            + "        return new Extension$Child$$ModuleAdapter();\n"
+            + "      default:\n"
+            + "        throw new AssertionError(index);\n"
+            + "    }\n"
+            + "  }\n"
+            + "  @Override protected Binding<?> newInjectAdapter(int index) {\n"
+            + "    switch (index) {\n"
+            + "      case 0:\n"
+            + "        return new Extension$Request$$InjectAdapter();\n"
+            + "      default:\n"
+            + "        throw new AssertionError(index);\n"
+            + "    }\n"
+            + "  }\n"
+            + "  @Override protected StaticInjection newStaticInjection(int index) {\n"
+            + "    switch (index) {\n"
+            + "      default:\n"
+            + "        throw new AssertionError(index);\n"
+            + "    }\n"
+            + "  }\n"
+            + "}\n"
+        );
+
+    assertAbout(javaSource())
+        .that(sourceFile)
+        .processedWith(daggerProcessors())
+        .compilesWithoutError()
+        .and()
+        .generatesSources(expectedGraphAdapter);
+  }
 }
@@ -20,6 +20,9 @@ import dagger.Module;
 import dagger.ObjectGraph;
 import dagger.Provides;
 import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -61,4 +64,47 @@ public final class PrimitiveInjectionTest {
     assertThat(result.floatArray).hasValuesWithin(0).of(new float[] { Float.MAX_VALUE });
     assertThat(result.doubleArray).hasValuesWithin(0).of(new double[] { Double.MAX_VALUE });
   }
+
+  static class PrimitiveInjectable {
+    final long timeoutMs;
+    @Inject int retries;
+    @Inject boolean verbose;
+    @Inject @Named("ratio") double ratio;
+    @Inject Long boxedTimeoutMs;
+    @Inject @Named("boxed") long unboxed;
+    @Inject @Named("singleton") long singleton;
+    @Inject Provider<Long> timeoutMsProvider;
+
+    @Inject PrimitiveInjectable(long timeoutMs) {
+      this.timeoutMs = timeoutMs;
+    }
+  }
+
+  @Module(injects = PrimitiveInjectable.class)
+  static class PrimitiveModule {
+    int singletons;
+
+    @Provides long timeoutMs() { return 1000L; }
+    @Provides int retries() { return 3; }
+    @Provides boolean verbose() { return true; }
+    @Provides @Named("ratio") double ratio(long timeoutMs, int retries) {
+      return (double) timeoutMs / retries;
+    }
+    @Provides @Named("boxed") Long boxed() { return 7L; }
+    @Provides @Singleton @Named("singleton") long singleton() { return ++singletons; }
+  }
+
+  @Test public void primitiveTypesAllInjected() {
+    ObjectGraph graph = ObjectGraph.create(new PrimitiveModule());
+    PrimitiveInjectable result = graph.get(PrimitiveInjectable.class);
+    assertThat(result.timeoutMs).isEqualTo(1000L);
+    assertThat(result.retries).isEqualTo(3);
+    assertThat(result.verbose).isTrue();
+    assertThat(result.ratio).isEqualTo(1000.0 / 3);
+    assertThat(result.boxedTimeoutMs).isEqualTo(1000L);
+    assertThat(result.unboxed).isEqualTo(7L);
+    assertThat(result.singleton).isEqualTo(1L);
+    assertThat(result.timeoutMsProvider.get()).isEqualTo(1000L);
+    assertThat(graph.get(PrimitiveInjectable.class).singleton).isEqualTo(1L);
+  }
 }
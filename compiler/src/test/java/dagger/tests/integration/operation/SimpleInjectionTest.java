@@ -16,10 +16,13 @@
  */
 package dagger.tests.integration.operation;
 
+import dagger.Assisted;
+import dagger.AssistedFactory;
 import dagger.Module;
 import dagger.ObjectGraph;
 import dagger.Provides;
 import javax.inject.Inject;
+import javax.inject.Singleton;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -87,4 +90,104 @@ public final class SimpleInjectionTest {
     assertThat(bar).isNotNull();
   }
 
+  @Module(injects = Foo.class)
+  static class StaticProvidingFooModule {
+    StaticProvidingFooModule() {
+      throw new AssertionError("Modules with only static @Provides methods aren't created");
+    }
+    @Provides static String string() { return "blah"; }
+    @Provides static Foo foo(String blah) {
+      Foo foo = new Foo();
+      foo.blah = blah;
+      return foo;
+    }
+  }
+
+  @Test public void get_WithStaticProvidesMethods() {
+    Foo foo = ObjectGraph.create(StaticProvidingFooModule.class).get(Foo.class);
+    assertThat(foo.blah).isEqualTo("blah");
+  }
+
+  @Module(injects = Foo.class)
+  static class MixedProvidingFooModule {
+    final String blah;
+    MixedProvidingFooModule(String blah) { this.blah = blah; }
+    @Provides String string() { return blah; }
+    @Provides static Foo foo(String blah) {
+      Foo foo = new Foo();
+      foo.blah = blah;
+      return foo;
+    }
+  }
+
+  @Test public void get_WithStaticAndInstanceProvidesMethods() {
+    ObjectGraph graph = ObjectGraph.create(new MixedProvidingFooModule("mixed"));
+    assertThat(graph.get(Foo.class).blah).isEqualTo("mixed");
+  }
+
+  interface Greeter {
+  }
+
+  @Singleton
+  static class RealGreeter implements Greeter {
+    @Inject RealGreeter() {
+    }
+  }
+
+  static class GreeterUser {
+    @Inject Greeter greeter;
+    @Inject RealGreeter realGreeter;
+  }
+
+  @Module(injects = GreeterUser.class)
+  static class GreeterModule {
+    @Provides(type = Provides.Type.ALIAS) Greeter greeter(RealGreeter real) {
+      throw new AssertionError("Alias methods aren't invoked");
+    }
+  }
+
+  @Test public void get_WithAlias() {
+    GreeterUser user = ObjectGraph.create(GreeterModule.class).get(GreeterUser.class);
+    assertThat(user.greeter).isSameAs(user.realGreeter);
+  }
+
+  @Singleton
+  static class Client {
+    @Inject Client() { }
+  }
+
+  static class Download {
+    final Client client;
+    final String url;
+    final int retries;
+    @Inject Client fieldClient;
+
+    @Inject Download(@Assisted String url, Client client, @Assisted int retries) {
+      this.url = url;
+      this.client = client;
+      this.retries = retries;
+    }
+
+    @AssistedFactory
+    interface Factory {
+      Download create(String url, int retries);
+    }
+  }
+
+  @Module(injects = Download.Factory.class)
+  static class DownloadModule {
+  }
+
+  @Test public void get_WithAssistedFactory() {
+    Download.Factory factory =
+        ObjectGraph.create(DownloadModule.class).get(Download.Factory.class);
+    Download first = factory.create("first", 3);
+    Download second = factory.create("second", 0);
+    assertThat(first.url).isEqualTo("first");
+    assertThat(first.retries).isEqualTo(3);
+    assertThat(second.url).isEqualTo("second");
+    assertThat(second.retries).isEqualTo(0);
+    assertThat(first.client).isSameAs(second.client);
+    assertThat(first.fieldClient).isSameAs(first.client);
+  }
 }
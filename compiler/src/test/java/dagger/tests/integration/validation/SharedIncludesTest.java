@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.tests.integration.validation;
+
+import com.google.testing.compile.JavaFileObjects;
+import javax.tools.JavaFileObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.google.common.truth.Truth.assertAbout;
+import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
+import static dagger.tests.integration.ProcessorTestUtils.daggerProcessors;
+
+/**
+ * Graph analysis shares what it learns about a module across all of the roots which include it.
+ * These tests check that each root is still validated against its own graph.
+ */
+@RunWith(JUnit4.class)
+public final class SharedIncludesTest {
+  @Test public void unusedProviderReportedForEachRootThatDoesNotUseIt() {
+    JavaFileObject source = JavaFileObjects.forSourceString("Roots", ""
+        + "import dagger.Module;\n"
+        + "import dagger.Provides;\n"
+        + "import javax.inject.Inject;\n"
+        + "class Roots {\n"
+        + "  static class Entry {\n"
+        + "    @Inject String string;\n"
+        + "  }\n"
+        + "  @Module(library = true, complete = false)\n"
+        + "  static class SharedModule {\n"
+        + "    @Provides String string() {\n"
+        + "      return \"string\";\n"
+        + "    }\n"
+        + "  }\n"
+        + "  @Module(injects = Entry.class, includes = SharedModule.class)\n"
+        + "  static class UsingModule {\n"
+        + "  }\n"
+        + "  @Module(includes = SharedModule.class)\n"
+        + "  static class NotUsingModule {\n"
+        + "    @Provides Integer integer() {\n"
+        + "      return 1;\n"
+        + "    }\n"
+        + "  }\n"
+        + "}\n"
+    );
+    assertAbout(javaSource())
+        .that(source)
+        .processedWith(daggerProcessors())
+        .failsToCompile()
+        .withErrorContaining("You have these unused @Provider methods:").in(source).onLine(18)
+        .and()
+        .withErrorContaining("1. Roots.NotUsingModule.integer()").in(source).onLine(18);
+  }
+
+  @Test public void missingBindingReportedForEachRootIncludingTheModule() {
+    JavaFileObject source = JavaFileObjects.forSourceString("Roots", ""
+        + "import dagger.Module;\n"
+        + "import dagger.Provides;\n"
+        + "class Roots {\n"
+        + "  interface Missing {\n"
+        + "  }\n"
+        + "  @Module(library = true, complete = false)\n"
+        + "  static class SharedModule {\n"
+        + "    @Provides String string(Missing missing) {\n"
+        + "      return \"string\" + missing;\n"
+        + "    }\n"
+        + "  }\n"
+        + "  @Module(includes = SharedModule.class, library = true)\n"
+        + "  static class FirstModule {\n"
+        + "  }\n"
+        + "  @Module(includes = SharedModule.class, library = true)\n"
+        + "  static class SecondModule {\n"
+        + "  }\n"
+        + "}\n"
+    );
+    assertAbout(javaSource())
+        .that(source)
+        .processedWith(daggerProcessors())
+        .failsToCompile()
+        .withErrorContaining("Roots$Missing could not be bound").in(source).onLine(13).and()
+        .withErrorContaining("for Roots.FirstModule").in(source).onLine(13).and()
+        .withErrorContaining("Roots$Missing could not be bound").in(source).onLine(16).and()
+        .withErrorContaining("for Roots.SecondModule").in(source).onLine(16);
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Annotates an interface with a single method that creates instances of a class whose
+ * {@code @Inject} constructor has {@link Assisted} parameters. The method's parameters are passed
+ * to those, in order; the constructor's other parameters are injected. The interface may be
+ * injected like any other type, and dagger-compiler generates its implementation.
+ *
+ * <h2>Example</h2><pre><code>
+ *   public class Download {
+ *     &#64;Inject Download(HttpClient client, &#64;Assisted URL url) {
+ *       ...
+ *     }
+ *
+ *     &#64;AssistedFactory
+ *     public interface Factory {
+ *       Download create(URL url);
+ *     }
+ *   }
+ * </code></pre>
+ */
+@Documented @Target(TYPE) @Retention(RUNTIME)
+public @interface AssistedFactory {
+}
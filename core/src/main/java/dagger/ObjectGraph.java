@@ -29,10 +29,23 @@ import dagger.internal.SetBinding;
 import dagger.internal.StaticInjection;
 import dagger.internal.ThrowingErrorHandler;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.inject.Provider;
 
 
 /**
@@ -61,6 +74,11 @@ import java.util.Map.Entry;
  *   <li>Method injection.</li>
  *   <li>Circular dependencies.</li>
  * </ul>
+ *
+ * <p>Graphs created by {@link #createLean} release the state that is only used for linking and
+ * for describing their bindings in errors, once they have been fully linked by {@link #plus} or
+ * {@link #validate}. This is intended for memory-constrained devices running graphs that were
+ * validated at build time.
  */
 public abstract class ObjectGraph {
   ObjectGraph() {
@@ -83,6 +101,66 @@ public abstract class ObjectGraph {
    */
   public abstract <T> T inject(T instance);
 
+  /**
+   * Returns a provider of instances of {@code type}, equivalent to calling {@link #get} each
+   * time. Callers that get many instances of one type can keep the provider and skip the lookup
+   * that {@link #get} does on every call.
+   *
+   * @throws IllegalArgumentException if {@code type} is not one of this object
+   *     graph's {@link Module#injects injectable types}.
+   */
+  public abstract <T> Provider<T> getProvider(Class<T> type);
+
+  /**
+   * Returns a members injector for instances of {@code type}. Unlike {@link #inject}, which
+   * injects the members of an instance's runtime type, this injects only the members of {@code
+   * type} and its supertypes. Callers that inject many instances of one type can keep the
+   * injector and skip the lookup that {@link #inject} does on every call.
+   *
+   * @throws IllegalArgumentException if {@code type} is not one of this object
+   *     graph's {@link Module#injects injectable types}.
+   */
+  public abstract <T> MembersInjector<T> getMembersInjector(Class<T> type);
+
+  /**
+   * Returns providers of instances of each of {@code types}, in the same order. The bindings of
+   * all of the types are requested together and linked in a single pass, rather than one pass
+   * for each type as calling {@link #getProvider} or {@link #get} for each type may do. This is
+   * useful for resolving the roots of an application when it starts up.
+   *
+   * @throws IllegalArgumentException if any of {@code types} is not one of this
+   *     object graph's {@link Module#injects injectable types}.
+   */
+  public abstract List<Provider<?>> getProviders(Class<?>... types);
+
+  /**
+   * Injects the members of each of {@code instances}, looking up their members injector only
+   * once. Every instance must be exactly of {@code type}, not a subtype, so that none of their
+   * members are missed.
+   *
+   * @throws IllegalArgumentException if any of {@code instances} isn't exactly of {@code
+   *     type}, or {@code type} is not one of this object graph's {@link Module#injects injectable
+   *     types}. No instance is injected in either case.
+   */
+  public abstract <T> void injectAll(Class<T> type, Collection<? extends T> instances);
+
+  /**
+   * Injects the members of each of {@code instances} like {@link #injectAll(Class, Collection)},
+   * in parallel on {@code executor} and the calling thread. This returns once every instance has
+   * been injected. The bindings of {@code type}'s members must be safe to use from many threads
+   * at once.
+   *
+   * <p>If injecting any instance throws, the others are still injected and then the first
+   * exception is rethrown, wrapped in a {@link RuntimeException} if it is checked. If {@code
+   * executor} rejects work, the calling thread injects the instances it would have.
+   *
+   * @throws IllegalArgumentException if any of {@code instances} isn't exactly of {@code
+   *     type}, or {@code type} is not one of this object graph's {@link Module#injects injectable
+   *     types}. No instance is injected in either case.
+   */
+  public abstract <T> void injectAll(
+      Class<T> type, Collection<? extends T> instances, Executor executor);
+
   /**
    * Returns a new object graph that includes all of the objects in this graph,
    * plus additional objects in the {@literal @}{@link Module}-annotated
@@ -126,12 +204,42 @@ public abstract class ObjectGraph {
    * the graph at runtime.
    */
   public static ObjectGraph create(Object... modules) {
-    return DaggerObjectGraph.makeGraph(null, new FailoverLoader(), modules);
+    return DaggerObjectGraph.makeGraph(null, loaderFor(modules), false, modules);
+  }
+
+  /**
+   * Returns a new dependency graph using the {@literal @}{@link Module}-annotated modules, like
+   * {@link #create}, which is lean. Once a lean graph has been fully linked by {@link #plus} or
+   * {@link #validate}, it releases the state that is only used for linking and for describing
+   * its bindings in errors, so problems found afterwards are reported less descriptively. Graphs
+   * created by {@link #plus} on a lean graph are lean too.
+   */
+  public static ObjectGraph createLean(Object... modules) {
+    return DaggerObjectGraph.makeGraph(null, loaderFor(modules), true, modules);
+  }
+
+  /**
+   * Returns a loader for a graph of {@code modules}. A single seed module may have had its whole
+   * graph analyzed at build time, in which case its adapters need not be looked up by name.
+   */
+  private static Loader loaderFor(Object[] modules) {
+    if (modules.length != 1 || modules[0] == null) {
+      return new FailoverLoader();
+    }
+    Class<?> rootModule = modules[0] instanceof Class<?>
+        ? (Class<?>) modules[0]
+        : modules[0].getClass();
+    return new FailoverLoader(rootModule);
   }
 
   // visible for testing
   static ObjectGraph createWith(Loader loader, Object... modules) {
-    return DaggerObjectGraph.makeGraph(null, loader, modules);
+    return DaggerObjectGraph.makeGraph(null, loader, false, modules);
+  }
+
+  // visible for testing
+  static ObjectGraph createLeanWith(Loader loader, Object... modules) {
+    return DaggerObjectGraph.makeGraph(null, loader, true, modules);
   }
 
   // TODO(cgruber): Move this internal implementation of ObjectGraph into the internal package.
@@ -163,7 +271,8 @@ public abstract class ObjectGraph {
       return object;
     }
 
-    static ObjectGraph makeGraph(DaggerObjectGraph base, Loader plugin, Object... modules) {
+    static ObjectGraph makeGraph(
+        DaggerObjectGraph base, Loader plugin, boolean lean, Object... modules) {
       Map<String, Class<?>> injectableTypes = new LinkedHashMap<String, Class<?>>();
       Map<Class<?>, StaticInjection> staticInjections
           = new LinkedHashMap<Class<?>, StaticInjection>();
@@ -172,6 +281,7 @@ public abstract class ObjectGraph {
       BindingsGroup overrideBindings = new OverridesBindings();
 
       Map<ModuleAdapter<?>, Object> loadedModules = Modules.loadModules(plugin, modules);
+      Set<ModuleAdapter<?>> onDemandModules = onDemandModules(loadedModules.keySet());
       for (Entry<ModuleAdapter<?>, Object> loadedModule : loadedModules.entrySet()) {
         ModuleAdapter<Object> moduleAdapter = (ModuleAdapter<Object>) loadedModule.getKey();
         for (int i = 0; i < moduleAdapter.injectableTypes.length; i++) {
@@ -180,28 +290,101 @@ public abstract class ObjectGraph {
         for (int i = 0; i < moduleAdapter.staticInjections.length; i++) {
           staticInjections.put(moduleAdapter.staticInjections[i], null);
         }
-        try {
+        if (!onDemandModules.contains(moduleAdapter)) {
           BindingsGroup addTo = moduleAdapter.overrides ? overrideBindings : baseBindings;
-          moduleAdapter.getBindings(addTo, loadedModule.getValue());
-        } catch (IllegalArgumentException e) {
-          throw new IllegalArgumentException(
-              moduleAdapter.moduleClass.getSimpleName() + ": " + e.getMessage(), e);
+          getBindings(moduleAdapter, loadedModule.getValue(), addTo);
+        }
+      }
+
+      for (Iterator<ModuleAdapter<?>> i = onDemandModules.iterator(); i.hasNext();) {
+        @SuppressWarnings("unchecked") // Each module was loaded with its own adapter.
+        ModuleAdapter<Object> moduleAdapter = (ModuleAdapter<Object>) i.next();
+        if (clobbersAny(baseBindings, moduleAdapter.getProvideKeys())) {
+          // Contribute eagerly, so that the duplicate binding fails graph creation.
+          getBindings(moduleAdapter, loadedModules.get(moduleAdapter), baseBindings);
+          i.remove();
         }
       }
 
       // Create a linker and install all of the user's bindings
       Linker linker =
           new Linker((base != null) ? base.linker : null, plugin, new ThrowingErrorHandler());
+      linker.setLean(lean);
       linker.installBindings(baseBindings);
       linker.installBindings(overrideBindings);
+      for (ModuleAdapter<?> onDemandModule : onDemandModules) {
+        @SuppressWarnings("unchecked") // Each module was loaded with its own adapter.
+        ModuleAdapter<Object> moduleAdapter = (ModuleAdapter<Object>) onDemandModule;
+        linker.installBindingsOnDemand(moduleAdapter, loadedModules.get(moduleAdapter));
+      }
+      if (base != null && plugin != base.plugin) {
+        linker.installJustInTimeBindings(plugin.getExtensionBindings());
+      }
 
       return new DaggerObjectGraph(
           base, linker, plugin, staticInjections, injectableTypes, baseBindings.setBindings);
     }
 
+    /**
+     * Returns the deferrable modules among {@code adapters} which don't share a key with another
+     * of them. A duplicate binding must still fail graph creation, so modules that share keys
+     * contribute their bindings eagerly, as do modules whose keys aren't known.
+     */
+    private static Set<ModuleAdapter<?>> onDemandModules(Set<ModuleAdapter<?>> adapters) {
+      Set<ModuleAdapter<?>> result = new LinkedHashSet<ModuleAdapter<?>>();
+      Map<String, ModuleAdapter<?>> keyToModule = new HashMap<String, ModuleAdapter<?>>();
+      for (ModuleAdapter<?> adapter : adapters) {
+        if (!adapter.isDeferrable()) {
+          continue;
+        }
+        result.add(adapter);
+        for (String key : adapter.getProvideKeys()) {
+          ModuleAdapter<?> clobbered = keyToModule.put(key, adapter);
+          if (clobbered != null) {
+            result.remove(clobbered);
+            result.remove(adapter);
+          }
+        }
+      }
+      return result;
+    }
+
+    private static boolean clobbersAny(BindingsGroup bindings, String[] keys) {
+      for (String key : keys) {
+        if (bindings.get(key) != null) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private static <T> void getBindings(
+        ModuleAdapter<T> moduleAdapter, T module, BindingsGroup addTo) {
+      try {
+        moduleAdapter.getBindings(addTo, Modules.getOrCreate(moduleAdapter, module));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException(
+            moduleAdapter.moduleClass.getSimpleName() + ": " + e.getMessage(), e);
+      }
+    }
+
     @Override public ObjectGraph plus(Object... modules) {
       linkEverything();
-      return makeGraph(this, plugin, modules);
+      return makeGraph(this, extensionLoaderFor(modules), linker.isLean(), modules);
+    }
+
+    /**
+     * Returns a loader for a graph which extends this one with {@code modules}. A single seed
+     * module which adds to another graph may have had its extension analyzed at build time.
+     */
+    private Loader extensionLoaderFor(Object[] modules) {
+      if (modules.length != 1 || modules[0] == null) {
+        return plugin;
+      }
+      Class<?> rootModule = modules[0] instanceof Class<?>
+          ? (Class<?>) modules[0]
+          : modules[0].getClass();
+      return plugin.forExtension(rootModule);
     }
 
     private void linkStaticInjections() {
@@ -224,7 +407,10 @@ public abstract class ObjectGraph {
 
     @Override public void validate() {
       Map<String, Binding<?>> allBindings = linkEverything();
-      new ProblemDetector().detectProblems(allBindings.values());
+      // Cycle detection marks the bindings it walks, so it must not run concurrently.
+      synchronized (linker) {
+        new ProblemDetector().detectProblems(allBindings.values());
+      }
     }
 
     /**
@@ -263,23 +449,139 @@ public abstract class ObjectGraph {
     }
 
     @Override public <T> T get(Class<T> type) {
+      return getProvider(type).get();
+    }
+
+    @Override public <T> T inject(T instance) {
+      @SuppressWarnings("unchecked") // The runtime type of a T is a T.
+      Class<T> type = (Class<T>) instance.getClass();
+      getMembersInjector(type).injectMembers(instance);
+      return instance;
+    }
+
+    @Override public <T> Provider<T> getProvider(Class<T> type) {
       String key = Keys.get(type);
       String injectableTypeKey = type.isInterface() ? key : Keys.getMembersKey(type);
       ClassLoader classLoader = type.getClassLoader();
       @SuppressWarnings("unchecked") // The linker matches keys to bindings by their type.
       Binding<T> binding =
           (Binding<T>) getInjectableTypeBinding(classLoader, injectableTypeKey, key);
-      return binding.get();
+      return binding;
     }
 
-    @Override public <T> T inject(T instance) {
-      String membersKey = Keys.getMembersKey(instance.getClass());
-      ClassLoader classLoader = instance.getClass().getClassLoader();
+    @Override public <T> MembersInjector<T> getMembersInjector(Class<T> type) {
+      String membersKey = Keys.getMembersKey(type);
+      ClassLoader classLoader = type.getClassLoader();
       @SuppressWarnings("unchecked") // The linker matches keys to bindings by their type.
       Binding<T> binding =
           (Binding<T>) getInjectableTypeBinding(classLoader, membersKey, membersKey);
-      binding.injectMembers(instance);
-      return instance;
+      return binding;
+    }
+
+    @Override public List<Provider<?>> getProviders(Class<?>... types) {
+      String[] keys = new String[types.length];
+      Class<?>[] moduleClasses = new Class<?>[types.length];
+      Provider<?>[] providers = new Provider<?>[types.length];
+      boolean allLinked = true;
+      for (int i = 0; i < types.length; i++) {
+        keys[i] = Keys.get(types[i]);
+        moduleClasses[i] = injectingModule(
+            types[i].isInterface() ? keys[i] : Keys.getMembersKey(types[i]));
+        Binding<?> linked = linker.linkedBinding(keys[i]);
+        if (linked != null && linked.isLinked()) {
+          providers[i] = linked;
+        } else {
+          allLinked = false;
+        }
+      }
+
+      if (!allLinked) {
+        synchronized (linker) {
+          boolean missing = false;
+          for (int i = 0; i < types.length; i++) {
+            if (providers[i] == null) {
+              Binding<?> binding = linker.requestBinding(
+                  keys[i], moduleClasses[i], types[i].getClassLoader(), false, true);
+              if (binding != null && binding.isLinked()) {
+                providers[i] = binding;
+              } else {
+                missing = true;
+              }
+            }
+          }
+          if (missing) {
+            linker.linkRequested();
+            for (int i = 0; i < types.length; i++) {
+              if (providers[i] == null) {
+                providers[i] = linker.requestBinding(
+                    keys[i], moduleClasses[i], types[i].getClassLoader(), false, true);
+              }
+            }
+          }
+        }
+      }
+      return Collections.unmodifiableList(Arrays.asList(providers));
+    }
+
+    @Override public <T> void injectAll(Class<T> type, Collection<? extends T> instances) {
+      MembersInjector<T> injector = getMembersInjector(type);
+      for (T instance : checkedInstances(type, instances)) {
+        injector.injectMembers(instance);
+      }
+    }
+
+    @Override public <T> void injectAll(
+        Class<T> type, Collection<? extends T> instances, Executor executor) {
+      if (executor == null) throw new NullPointerException("executor");
+      MembersInjector<T> injector = getMembersInjector(type);
+      List<T> checked = checkedInstances(type, instances);
+      if (checked.isEmpty()) {
+        return;
+      }
+
+      // A few workers share the instances through an index so that they stay busy until all are
+      // injected. The calling thread works too, so this completes even if the executor is busy.
+      ParallelInjection<T> injection = new ParallelInjection<T>(injector, checked);
+      int workers = Math.min(checked.size() - 1, Runtime.getRuntime().availableProcessors());
+      try {
+        for (int i = 0; i < workers; i++) {
+          executor.execute(injection);
+        }
+      } catch (RejectedExecutionException e) {
+        // The calling thread injects whatever the workers already submitted don't get to.
+      }
+      injection.run();
+      injection.await();
+    }
+
+    /** Returns {@code instances}, after checking that each one is exactly of {@code type}. */
+    private static <T> List<T> checkedInstances(
+        Class<T> type, Collection<? extends T> instances) {
+      List<T> result = new ArrayList<T>(instances);
+      for (T instance : result) {
+        if (instance.getClass() != type) {
+          throw new IllegalArgumentException("Expected instances of " + type.getName()
+              + " but got " + instance.getClass().getName());
+        }
+      }
+      return result;
+    }
+
+    /**
+     * Returns the module which lists {@code injectableKey} in its {@link Module#injects}, in this
+     * graph or one of the graphs it extends.
+     *
+     * @throws IllegalArgumentException if no module does.
+     */
+    private Class<?> injectingModule(String injectableKey) {
+      for (DaggerObjectGraph graph = this; graph != null; graph = graph.base) {
+        Class<?> moduleClass = graph.injectableTypes.get(injectableKey);
+        if (moduleClass != null) {
+          return moduleClass;
+        }
+      }
+      throw new IllegalArgumentException("No inject registered for " + injectableKey
+          + ". You must explicitly add it to the 'injects' option in one of your modules.");
     }
 
     /**
@@ -293,14 +595,12 @@ public abstract class ObjectGraph {
      */
     private Binding<?> getInjectableTypeBinding(
         ClassLoader classLoader, String injectableKey, String key) {
-      Class<?> moduleClass = null;
-      for (DaggerObjectGraph graph = this; graph != null; graph = graph.base) {
-        moduleClass = graph.injectableTypes.get(injectableKey);
-        if (moduleClass != null) break;
-      }
-      if (moduleClass == null) {
-        throw new IllegalArgumentException("No inject registered for " + injectableKey
-            + ". You must explicitly add it to the 'injects' option in one of your modules.");
+      Class<?> moduleClass = injectingModule(injectableKey);
+
+      // Once the graph is fully linked, its bindings can be found without taking the lock.
+      Binding<?> linked = linker.linkedBinding(key);
+      if (linked != null && linked.isLinked()) {
+        return linked;
       }
 
       synchronized (linker) {
@@ -354,4 +654,51 @@ public abstract class ObjectGraph {
       throw new IllegalArgumentException("Module overrides cannot contribute set bindings.");
     }
   }
+
+  /** Injects a list of instances on every thread that runs it, until all are injected. */
+  private static final class ParallelInjection<T> implements Runnable {
+    private final MembersInjector<T> injector;
+    private final List<T> instances;
+    private final AtomicInteger next = new AtomicInteger();
+    private final CountDownLatch remaining;
+    private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+    ParallelInjection(MembersInjector<T> injector, List<T> instances) {
+      this.injector = injector;
+      this.instances = instances;
+      this.remaining = new CountDownLatch(instances.size());
+    }
+
+    @Override public void run() {
+      for (int i; (i = next.getAndIncrement()) < instances.size();) {
+        try {
+          injector.injectMembers(instances.get(i));
+        } catch (Throwable t) {
+          failure.compareAndSet(null, t);
+        } finally {
+          remaining.countDown();
+        }
+      }
+    }
+
+    /** Waits for every instance to be injected, and rethrows the first failure. */
+    void await() {
+      boolean interrupted = false;
+      while (true) {
+        try {
+          remaining.await();
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+      Throwable t = failure.get();
+      if (t instanceof RuntimeException) throw (RuntimeException) t;
+      if (t instanceof Error) throw (Error) t;
+      if (t != null) throw new RuntimeException(t);
+    }
+  }
 }
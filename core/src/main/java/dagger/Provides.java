@@ -53,7 +53,16 @@ public @interface Provides {
      * contributed to the set. An example use is to provide a default empty set binding, which is
      * otherwise not possible using {@link #SET}.
      */
-    SET_VALUES;
+    SET_VALUES,
+
+    /**
+     * The method has a single parameter, whose binding is also used for the method's return type.
+     * The object graph resolves the return type to that binding while linking and never invokes
+     * the method, so binding an interface to its implementation this way costs nothing when
+     * instances are provided. The method must not be scoped: it shares the scope of the
+     * parameter's binding.
+     */
+    ALIAS;
   }
 
   Type type() default Type.UNIQUE;
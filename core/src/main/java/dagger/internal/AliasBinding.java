@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.internal;
+
+/**
+ * Binds a key to the binding of another key, for a {@code @Provides(type = ALIAS)} method. The
+ * {@link Linker} replaces this with the target binding while linking, so an alias never provides
+ * instances itself.
+ */
+public final class AliasBinding extends ProvidesBinding<Object> {
+  final String targetKey;
+  final ClassLoader classLoader;
+
+  /** True while the linker is resolving this alias, to detect aliases of themselves. */
+  boolean resolving;
+
+  public AliasBinding(String key, String targetKey, String moduleClass, String methodName,
+      ClassLoader classLoader) {
+    super(key, NOT_SINGLETON, moduleClass, methodName);
+    this.targetKey = targetKey;
+    this.classLoader = classLoader;
+  }
+
+  @Override public Object get() {
+    throw new AssertionError("Alias " + provideKey + " should have been linked to " + targetKey);
+  }
+}
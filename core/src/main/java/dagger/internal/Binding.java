@@ -34,6 +34,9 @@ public abstract class Binding<T> implements Provider<T>, MembersInjector<T> {
   protected static final boolean IS_SINGLETON = true;
   protected static final boolean NOT_SINGLETON = false;
 
+  /** The instance held by a singleton binding that hasn't created it yet. */
+  protected static final Object UNINITIALIZED = new Object();
+
   /** Set if the provided instance is always the same object. */
   private static final int SINGLETON = 1 << 0;
 
@@ -50,6 +53,9 @@ public abstract class Binding<T> implements Provider<T>, MembersInjector<T> {
 
   private static final int LIBRARY = 1 << 5;
 
+  /** Set if this singleton binding holds its instance itself, rather than relying on the linker. */
+  private static final int SELF_SCOPED = 1 << 6;
+
   /** The key used to provide instances of 'T', or null if this binding cannot provide instances. */
   public final String provideKey;
 
@@ -59,7 +65,11 @@ public abstract class Binding<T> implements Provider<T>, MembersInjector<T> {
   /** Bitfield of states like SINGLETON and LINKED. */
   private int bits;
 
-  public final Object requiredBy;
+  /**
+   * Describes what required this binding, for error messages. This is null once the binding's
+   * graph has been linked in {@linkplain Linker#setLean lean mode}.
+   */
+  public Object requiredBy;
 
   protected Binding(String provideKey, String membersKey, boolean singleton, Object requiredBy) {
     if (singleton && provideKey == null) {
@@ -87,6 +97,29 @@ public abstract class Binding<T> implements Provider<T>, MembersInjector<T> {
     throw new UnsupportedOperationException("No injectable constructor on " + getClass().getName());
   }
 
+  /**
+   * Returns the provided {@code int}. Bindings whose instances are created as an {@code int}
+   * override this to avoid boxing; other bindings unbox the result of {@link #get}.
+   */
+  public int getInt() {
+    return (Integer) get();
+  }
+
+  /** Returns the provided {@code long}, like {@link #getInt}. */
+  public long getLong() {
+    return (Long) get();
+  }
+
+  /** Returns the provided {@code boolean}, like {@link #getInt}. */
+  public boolean getBoolean() {
+    return (Boolean) get();
+  }
+
+  /** Returns the provided {@code double}, like {@link #getInt}. */
+  public double getDouble() {
+    return (Double) get();
+  }
+
   /**
    * Populates {@code getBindings} and {@code injectMembersBindings} with the
    * bindings used by this binding to satisfy {@link #get} and {@link
@@ -102,6 +135,15 @@ public abstract class Binding<T> implements Provider<T>, MembersInjector<T> {
     // Do nothing.  No override == no dependencies to contribute.
   }
 
+  /**
+   * Releases state which is only used to link this binding or to describe it in errors. This is
+   * called once the binding's graph has been fully linked in {@linkplain Linker#setLean lean
+   * mode}; subclasses which hold such state release theirs too.
+   */
+  protected void releaseLinkingState() {
+    requiredBy = null;
+  }
+
   void setLinked() {
     bits |= LINKED;
   }
@@ -114,6 +156,22 @@ public abstract class Binding<T> implements Provider<T>, MembersInjector<T> {
     return (bits & SINGLETON) != 0;
   }
 
+  /**
+   * Declares that this singleton binding's {@link #get} creates its instance only once, so the
+   * linker needn't wrap it in a binding that does. Generated adapters for {@code @Singleton}
+   * types and {@code @Provides} methods call this from their constructors.
+   */
+  protected final void setSelfScoped() {
+    if (!isSingleton()) {
+      throw new IllegalStateException("Not a singleton: " + this);
+    }
+    bits |= SELF_SCOPED;
+  }
+
+  boolean isSelfScoped() {
+    return (bits & SELF_SCOPED) != 0;
+  }
+
   public boolean isVisiting() {
     return (bits & VISITING) != 0;
   }
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.internal;
+
+/**
+ * A linker's bindings by {@link KeyIds key id}. Ids are assigned across the whole process, so
+ * rather than an array indexed by id, this is a table with open addressing and linear probing
+ * which is sized to the ids that have been put into it. The table is at most half full. This
+ * class is not thread-safe.
+ */
+final class BindingsById {
+  /** Each slot's id plus one, or zero if the slot is empty. */
+  private int[] ids = new int[16];
+  private Binding<?>[] bindings = new Binding<?>[16];
+  private int size;
+
+  /** Returns the binding for {@code id}, or null if there isn't one. */
+  Binding<?> get(int id) {
+    int mask = ids.length - 1;
+    for (int i = index(id, mask); ; i = (i + 1) & mask) {
+      int candidate = ids[i];
+      if (candidate == id + 1) {
+        return bindings[i];
+      }
+      if (candidate == 0) {
+        return null;
+      }
+    }
+  }
+
+  void put(int id, Binding<?> binding) {
+    if ((size + 1) * 2 > ids.length) {
+      grow();
+    }
+    int mask = ids.length - 1;
+    for (int i = index(id, mask); ; i = (i + 1) & mask) {
+      int candidate = ids[i];
+      if (candidate == 0) {
+        ids[i] = id + 1;
+        bindings[i] = binding;
+        size++;
+        return;
+      }
+      if (candidate == id + 1) {
+        bindings[i] = binding;
+        return;
+      }
+    }
+  }
+
+  int size() {
+    return size;
+  }
+
+  private void grow() {
+    int[] oldIds = ids;
+    Binding<?>[] oldBindings = bindings;
+    ids = new int[oldIds.length * 2];
+    bindings = new Binding<?>[oldIds.length * 2];
+    size = 0;
+    for (int i = 0; i < oldIds.length; i++) {
+      if (oldIds[i] != 0) {
+        put(oldIds[i] - 1, oldBindings[i]);
+      }
+    }
+  }
+
+  /** Ids are dense, so they are scrambled to spread neighbouring ids over the table. */
+  private static int index(int id, int mask) {
+    int h = id * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & mask;
+  }
+}
@@ -19,7 +19,12 @@ package dagger.internal;
 
 import dagger.internal.loaders.ReflectiveAtInjectBinding;
 import dagger.internal.loaders.ReflectiveStaticInjection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
+import static dagger.internal.loaders.GeneratedAdapters.GRAPH_ADAPTER_SUFFIX;
 import static dagger.internal.loaders.GeneratedAdapters.INJECT_ADAPTER_SUFFIX;
 import static dagger.internal.loaders.GeneratedAdapters.MODULE_ADAPTER_SUFFIX;
 import static dagger.internal.loaders.GeneratedAdapters.STATIC_INJECTION_SUFFIX;
@@ -36,11 +41,27 @@ public final class FailoverLoader extends Loader {
    * be wasteful in terms of both CPU and memory allocated.
    */
 
+  /**
+   * Root modules known to have no generated {@link GraphAdapter}, so that a graph created from
+   * one doesn't look that adapter up again. Modules' classes are weakly referenced, so that this
+   * never keeps them loaded.
+   */
+  private static final Map<Class<?>, Boolean> MODULES_WITHOUT_GRAPH_ADAPTERS =
+      Collections.synchronizedMap(new WeakHashMap<Class<?>, Boolean>());
+
+  /** Creates the adapters of a complete graph directly, or null to load every adapter by name. */
+  private final GraphAdapter graphAdapter;
+
   private final Memoizer<Class<?>, ModuleAdapter<?>> loadedAdapters =
       new Memoizer<Class<?>, ModuleAdapter<?>>() {
         @Override protected ModuleAdapter<?> create(Class<?> type) {
-          ModuleAdapter<?> result =
-              instantiate(type.getName().concat(MODULE_ADAPTER_SUFFIX), type.getClassLoader());
+          ModuleAdapter<?> result = graphAdapter != null
+              ? graphAdapter.getModuleAdapter(type.getName())
+              : null;
+          if (result == null) {
+            result =
+                instantiate(type.getName().concat(MODULE_ADAPTER_SUFFIX), type.getClassLoader());
+          }
           if (result == null) {
             throw new IllegalStateException("Module adapter for " + type + " could not be loaded. "
                 + "Please ensure that code generation was run for this module.");
@@ -49,6 +70,52 @@ public final class FailoverLoader extends Loader {
         }
       };
 
+  public FailoverLoader() {
+    this.graphAdapter = null;
+  }
+
+  /**
+   * Creates a loader for graphs whose only seed module is {@code rootModule}. If that module's
+   * graph was analyzed at build time, the adapters it uses are created by its generated {@link
+   * GraphAdapter}; anything else is loaded as usual.
+   */
+  public FailoverLoader(Class<?> rootModule) {
+    this.graphAdapter = graphAdapterOf(rootModule);
+  }
+
+  private FailoverLoader(GraphAdapter graphAdapter) {
+    this.graphAdapter = graphAdapter;
+  }
+
+  /**
+   * Returns a loader whose adapters are created by the generated {@link GraphAdapter} of {@code
+   * rootModule}, if that module {@linkplain dagger.Module#addsTo adds to} another graph.
+   * Otherwise this loader serves the extension too.
+   */
+  @Override public Loader forExtension(Class<?> rootModule) {
+    GraphAdapter extension = graphAdapterOf(rootModule);
+    return extension != null && extension.isExtension() ? new FailoverLoader(extension) : this;
+  }
+
+  /** Returns a new instance of {@code rootModule}'s generated graph adapter, or null. */
+  private GraphAdapter graphAdapterOf(Class<?> rootModule) {
+    if (MODULES_WITHOUT_GRAPH_ADAPTERS.containsKey(rootModule)) {
+      return null;
+    }
+    GraphAdapter result = instantiate(
+        rootModule.getName().concat(GRAPH_ADAPTER_SUFFIX), rootModule.getClassLoader());
+    if (result == null) {
+      MODULES_WITHOUT_GRAPH_ADAPTERS.put(rootModule, Boolean.TRUE);
+    }
+    return result;
+  }
+
+  @Override public List<Binding<?>> getExtensionBindings() {
+    return graphAdapter != null
+        ? graphAdapter.newExtensionBindings()
+        : super.getExtensionBindings();
+  }
+
   /**
    * Obtains a module adapter for {@code module} from the first responding resolver.
    */
@@ -59,6 +126,12 @@ public final class FailoverLoader extends Loader {
 
   @Override public Binding<?> getAtInjectBinding(
       String key, String className, ClassLoader classLoader, boolean mustHaveInjections) {
+    if (graphAdapter != null) {
+      Binding<?> result = graphAdapter.getAtInjectBinding(className);
+      if (result != null) {
+        return result;
+      }
+    }
     Binding<?> result = instantiate(className.concat(INJECT_ADAPTER_SUFFIX), classLoader);
     if (result != null) {
       return result; // Found loadable adapter, returning it.
@@ -75,6 +148,12 @@ public final class FailoverLoader extends Loader {
   }
 
   @Override public StaticInjection getStaticInjection(Class<?> injectedClass) {
+    if (graphAdapter != null) {
+      StaticInjection result = graphAdapter.getStaticInjection(injectedClass.getName());
+      if (result != null) {
+        return result;
+      }
+    }
     StaticInjection result = instantiate(
           injectedClass.getName().concat(STATIC_INJECTION_SUFFIX), injectedClass.getClassLoader());
     if (result != null) {
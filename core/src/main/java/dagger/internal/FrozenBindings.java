@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.internal;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A read-only snapshot of a linker's bindings, taken once they are fully linked. Keys and values
+ * are stored in two parallel arrays with open addressing and linear probing, so it needs no entry
+ * objects and a lookup touches only the slots it probes. The table is at most half full. It
+ * replaces the linker's hash map rather than copying it, so that only one of them is retained.
+ */
+final class FrozenBindings extends AbstractMap<String, Binding<?>> {
+  private final String[] keys;
+  private final Binding<?>[] values;
+  private final int size;
+
+  FrozenBindings(Map<String, Binding<?>> bindings) {
+    int capacity = 2;
+    while (capacity < bindings.size() * 2) {
+      capacity <<= 1;
+    }
+    keys = new String[capacity];
+    values = new Binding<?>[capacity];
+    int mask = capacity - 1;
+    for (Map.Entry<String, Binding<?>> entry : bindings.entrySet()) {
+      String key = entry.getKey();
+      int i = index(key, mask);
+      while (keys[i] != null) {
+        i = (i + 1) & mask;
+      }
+      keys[i] = key;
+      values[i] = entry.getValue();
+    }
+    size = bindings.size();
+  }
+
+  @Override public Binding<?> get(Object key) {
+    int i = slot(key);
+    return i != -1 ? values[i] : null;
+  }
+
+  @Override public boolean containsKey(Object key) {
+    return slot(key) != -1;
+  }
+
+  @Override public int size() {
+    return size;
+  }
+
+  /** Returns the slot holding {@code key}, or -1 if there isn't one. */
+  private int slot(Object key) {
+    if (!(key instanceof String)) {
+      return -1;
+    }
+    int mask = keys.length - 1;
+    for (int i = index(key, mask); ; i = (i + 1) & mask) {
+      String candidate = keys[i];
+      if (candidate == null) {
+        return -1;
+      }
+      if (candidate == key || candidate.equals(key)) {
+        return i;
+      }
+    }
+  }
+
+  /** Spreads the hash's high bits into the low ones, which alone pick the slot. */
+  private static int index(Object key, int mask) {
+    int h = key.hashCode();
+    return (h ^ (h >>> 16)) & mask;
+  }
+
+  @Override public Set<Map.Entry<String, Binding<?>>> entrySet() {
+    return new AbstractSet<Map.Entry<String, Binding<?>>>() {
+      @Override public Iterator<Map.Entry<String, Binding<?>>> iterator() {
+        return new Iterator<Map.Entry<String, Binding<?>>>() {
+          private int next = advance(0);
+
+          private int advance(int from) {
+            while (from < keys.length && keys[from] == null) {
+              from++;
+            }
+            return from;
+          }
+
+          @Override public boolean hasNext() {
+            return next < keys.length;
+          }
+
+          @Override public Map.Entry<String, Binding<?>> next() {
+            if (next >= keys.length) {
+              throw new NoSuchElementException();
+            }
+            Map.Entry<String, Binding<?>> entry = new FrozenEntry(keys[next], values[next]);
+            next = advance(next + 1);
+            return entry;
+          }
+
+          @Override public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+
+      @Override public int size() {
+        return size;
+      }
+    };
+  }
+
+  /** A read-only entry, created as the entry set is iterated. */
+  private static final class FrozenEntry implements Map.Entry<String, Binding<?>> {
+    private final String key;
+    private final Binding<?> value;
+
+    FrozenEntry(String key, Binding<?> value) {
+      this.key = key;
+      this.value = value;
+    }
+
+    @Override public String getKey() {
+      return key;
+    }
+
+    @Override public Binding<?> getValue() {
+      return value;
+    }
+
+    @Override public Binding<?> setValue(Binding<?> value) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override public boolean equals(Object o) {
+      if (!(o instanceof Map.Entry)) {
+        return false;
+      }
+      Map.Entry<?, ?> other = (Map.Entry<?, ?>) o;
+      return key.equals(other.getKey())
+          && (value == null ? other.getValue() == null : value.equals(other.getValue()));
+    }
+
+    @Override public int hashCode() {
+      return key.hashCode() ^ (value == null ? 0 : value.hashCode());
+    }
+
+    @Override public String toString() {
+      return key + "=" + value;
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Creates the generated adapters used by the graph of a complete module. Implementations are
+ * generated at build time once the module's graph has been fully analyzed, so that creating a
+ * graph rooted at that module instantiates its module adapters, injection bindings and static
+ * injections directly rather than looking each of them up by name.
+ *
+ * <p>Each table holds the sorted binary names of the classes whose adapters can be created, and
+ * the matching {@code new*} method creates the adapter at a given index of that table. Classes
+ * which are not in a table are loaded as usual.
+ *
+ * <p>The graph adapter of a module with {@link dagger.Module#addsTo addsTo} serves the graph that
+ * {@link dagger.ObjectGraph#plus plus} creates with that module. Its tables hold only what that
+ * graph adds to the graph it extends, so its inject adapters are the bindings which the extension
+ * creates itself. Those are installed up front rather than each deferred, looked up and created
+ * when first requested.
+ */
+public abstract class GraphAdapter {
+  private final String[] moduleAdapters;
+  private final String[] injectAdapters;
+  private final String[] staticInjections;
+  private final boolean extension;
+
+  protected GraphAdapter(
+      String[] moduleAdapters, String[] injectAdapters, String[] staticInjections) {
+    this(moduleAdapters, injectAdapters, staticInjections, false);
+  }
+
+  /**
+   * @param extension true if this adapter's graph extends another graph, and {@code
+   *     injectAdapters} holds the classes whose bindings it doesn't find in that graph.
+   */
+  protected GraphAdapter(String[] moduleAdapters, String[] injectAdapters,
+      String[] staticInjections, boolean extension) {
+    this.moduleAdapters = moduleAdapters;
+    this.injectAdapters = injectAdapters;
+    this.staticInjections = staticInjections;
+    this.extension = extension;
+  }
+
+  /** Returns true if this adapter's graph extends another graph. */
+  public final boolean isExtension() {
+    return extension;
+  }
+
+  /** Returns a new adapter for the module named {@code className}, or null if it has none. */
+  public final ModuleAdapter<?> getModuleAdapter(String className) {
+    int index = Arrays.binarySearch(moduleAdapters, className);
+    return index >= 0 ? newModuleAdapter(index) : null;
+  }
+
+  /** Returns a new {@code @Inject} binding for {@code className}, or null if it has none. */
+  public final Binding<?> getAtInjectBinding(String className) {
+    int index = Arrays.binarySearch(injectAdapters, className);
+    return index >= 0 ? newInjectAdapter(index) : null;
+  }
+
+  /** Returns a new static injection for {@code className}, or null if it has none. */
+  public final StaticInjection getStaticInjection(String className) {
+    int index = Arrays.binarySearch(staticInjections, className);
+    return index >= 0 ? newStaticInjection(index) : null;
+  }
+
+  /**
+   * Returns a new binding for each class of an extension graph's inject adapters table, or an
+   * empty list if this adapter's graph doesn't extend another graph.
+   */
+  public final List<Binding<?>> newExtensionBindings() {
+    if (!extension) {
+      return new ArrayList<Binding<?>>();
+    }
+    List<Binding<?>> result = new ArrayList<Binding<?>>(injectAdapters.length);
+    for (int i = 0; i < injectAdapters.length; i++) {
+      result.add(newInjectAdapter(i));
+    }
+    return result;
+  }
+
+  protected abstract ModuleAdapter<?> newModuleAdapter(int index);
+
+  protected abstract Binding<?> newInjectAdapter(int index);
+
+  protected abstract StaticInjection newStaticInjection(int index);
+}
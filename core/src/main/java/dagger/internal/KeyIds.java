@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.internal;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Assigns small, dense integer ids to {@link Keys keys}. Generated adapters look up the ids of
+ * their dependencies once, when they are loaded, and then request bindings by id so that linking
+ * probes a table of ints rather than hashing a string per dependency.
+ *
+ * <p>Adapters generated by different compilations, and loaded by different class loaders, end up
+ * in the same graph, so ids are assigned at runtime and are only stable for the lifetime of this
+ * class. Each linker only keeps bindings for the ids it has been asked for.
+ */
+public final class KeyIds {
+  /** Guarded by the class lock. */
+  private static final Map<String, Integer> ids = new HashMap<String, Integer>();
+
+  /**
+   * Keys by id. Only {@link #of} writes them, and it publishes each key by writing {@link #size}
+   * after it, so that {@link #key} can read them without the lock.
+   */
+  private static volatile String[] keys = new String[64];
+  private static volatile int size;
+
+  KeyIds() {
+  }
+
+  /** Returns the id of {@code key}, assigning the next free id if it doesn't have one yet. */
+  public static synchronized int of(String key) {
+    if (key == null) throw new NullPointerException("key");
+    Integer id = ids.get(key);
+    if (id != null) {
+      return id;
+    }
+    int next = size;
+    String[] table = keys;
+    if (next == table.length) {
+      String[] grown = new String[next * 2];
+      System.arraycopy(table, 0, grown, 0, next);
+      table = grown;
+    }
+    table[next] = key;
+    keys = table;
+    ids.put(key, next);
+    size = next + 1;
+    return next;
+  }
+
+  /** Returns the ids of {@code keys}, in order. */
+  public static int[] ofAll(String... keys) {
+    int[] result = new int[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      result[i] = of(keys[i]);
+    }
+    return result;
+  }
+
+  /** Returns the key whose id is {@code id}. This doesn't take the lock. */
+  static String key(int id) {
+    if (id < 0 || id >= size) {
+      throw new IllegalArgumentException("Unknown key id: " + id);
+    }
+    return keys[id];
+  }
+}
@@ -17,8 +17,8 @@ package dagger.internal;
 
 import dagger.internal.Binding.InvalidBindingException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
@@ -28,8 +28,6 @@ import java.util.Set;
  * Links bindings to their dependencies.
  */
 public final class Linker {
-  static final Object UNINITIALIZED = new Object();
-
   /**
    * The base {@code Linker} which will be consulted to satisfy bindings not
    * otherwise satisfiable from this {@code Linker}. The top-most {@code Linker}
@@ -38,19 +36,54 @@ public final class Linker {
   private final Linker base;
 
   /** Bindings requiring a call to attach(). May contain deferred bindings. */
-  private final Queue<Binding<?>> toLink = new ArrayQueue<Binding<?>>();
+  private Queue<Binding<?>> toLink = new ArrayQueue<Binding<?>>();
 
   /** True unless calls to requestBinding() were unable to satisfy the binding. */
   private boolean attachSuccess = true;
 
+  /** The binding being attached by linkRequested(), or null. */
+  private Binding<?> attaching;
+
+  /** The deferred binding enqueued for each key that was requested and missing. */
+  private Map<String, DeferredBinding> deferredBindings =
+      new HashMap<String, DeferredBinding>();
+
+  /**
+   * Bindings whose attach() requested missing keys, with the number of those requests whose
+   * deferred bindings haven't been processed yet. Each is attached again once that reaches zero.
+   */
+  private Map<Binding<?>, Integer> pendingCounts =
+      new IdentityHashMap<Binding<?>, Integer>();
+
   /** All errors encountered during injection. */
-  private final List<String> errors = new ArrayList<String>();
+  private List<String> errors = new ArrayList<String>();
+
+  /**
+   * All of the object graph's bindings. This may contain unlinked bindings. Once {@link
+   * #linkAll()} has frozen them into {@link #linkedBindings}, this is replaced with an empty map
+   * which only holds bindings first requested afterwards.
+   */
+  private Map<String, Binding<?>> bindings = new HashMap<String, Binding<?>>();
 
-  /** All of the object graph's bindings. This may contain unlinked bindings. */
-  private final Map<String, Binding<?>> bindings = new HashMap<String, Binding<?>>();
+  /**
+   * Bindings already returned by {@link #requestBinding(int, Object, ClassLoader, boolean,
+   * boolean)}, by {@link KeyIds key id}. Once a key resolves its binding never changes, so
+   * repeated requests for it skip the string lookup.
+   */
+  private BindingsById bindingsById = new BindingsById();
 
   /**
-   * An unmodifiable map containing all of the bindings available in this linker, fully linked.
+   * Modules whose bindings are installed the first time one of their keys is requested, indexed
+   * by each of those keys.
+   */
+  private Map<String, OnDemandModule<?>> onDemandModules =
+      new HashMap<String, OnDemandModule<?>>();
+
+  /** Every on-demand module, including those without keys. All are installed by linkAll(). */
+  private final List<OnDemandModule<?>> allOnDemandModules = new ArrayList<OnDemandModule<?>>();
+
+  /**
+   * A read-only snapshot of all of the bindings available in this linker, fully linked.
    * This will be null if the bindings are not yet fully linked. It provides both a signal
    * of completion of the {@link #linkAll()} method, as well as a place to reference the final,
    * fully linked map of bindings.
@@ -61,6 +94,9 @@ public final class Linker {
 
   private final ErrorHandler errorHandler;
 
+  /** True to release the state only used for linking once linkAll() has succeeded. */
+  private boolean lean;
+
   public Linker(Linker base, Loader plugin, ErrorHandler errorHandler) {
     if (plugin == null) throw new NullPointerException("plugin");
     if (errorHandler == null) throw new NullPointerException("errorHandler");
@@ -70,6 +106,22 @@ public final class Linker {
     this.errorHandler = errorHandler;
   }
 
+  /**
+   * Sets whether this linker releases the state it only needs for linking once {@link #linkAll}
+   * has succeeded. In lean mode, its work queues are replaced with empty ones, and every linked
+   * binding {@linkplain Binding#releaseLinkingState releases} its own linking state, including
+   * what it was required by. This shrinks the heap retained by large graphs, at the cost of less
+   * descriptive errors from anything that links or validates the graph afterwards.
+   */
+  public void setLean(boolean lean) {
+    this.lean = lean;
+  }
+
+  /** Returns true if this linker releases its linking state once {@link #linkAll} succeeds. */
+  public boolean isLean() {
+    return lean;
+  }
+
   /**
    * Adds all bindings in {@code toInstall}. The caller must call either {@link
    * #linkAll} or {@link #requestBinding} and {@link #linkRequested} before the
@@ -85,6 +137,85 @@ public final class Linker {
     for (Map.Entry<String, ? extends Binding<?>> entry : toInstall.entrySet()) {
       bindings.put(entry.getKey(), scope(entry.getValue()));
     }
+    bindingsById = new BindingsById(); // Installed bindings may replace requested ones.
+  }
+
+  /**
+   * Installs {@code @Inject} bindings before they are requested, so that requests for them find
+   * them rather than deferring each one to be created while linking. A binding is skipped if a
+   * base linker already has one of its keys, and it doesn't replace installed bindings.
+   *
+   * This method may only be called before {@link #linkAll()}.
+   */
+  public void installJustInTimeBindings(List<Binding<?>> toInstall) {
+    if (linkedBindings != null) {
+      throw new IllegalStateException("Cannot install further bindings after calling linkAll().");
+    }
+    for (Binding<?> binding : toInstall) {
+      if (isBoundByBase(binding.provideKey) || isBoundByBase(binding.membersKey)) {
+        continue; // The graph being extended already created this binding.
+      }
+      binding.setLibrary(true);
+      putBinding(scope(binding));
+    }
+    bindingsById = new BindingsById();
+  }
+
+  private boolean isBoundByBase(String key) {
+    if (key == null) {
+      return false;
+    }
+    for (Linker linker = base; linker != null; linker = linker.base) {
+      if (linker.getBinding(key) != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Installs the bindings of {@code adapter} the first time one of its {@linkplain
+   * ModuleAdapter#getProvideKeys() provide keys} is requested, or when {@link #linkAll} is
+   * called. If {@code module} is null it is created at that time. Bindings which are already
+   * installed for those keys, such as those of overriding modules, take precedence.
+   *
+   * This method may only be called before {@link #linkAll()}.
+   */
+  public <T> void installBindingsOnDemand(ModuleAdapter<T> adapter, T module) {
+    if (linkedBindings != null) {
+      throw new IllegalStateException("Cannot install further bindings after calling linkAll().");
+    }
+    OnDemandModule<T> onDemandModule = new OnDemandModule<T>(adapter, module);
+    for (String key : adapter.getProvideKeys()) {
+      onDemandModules.put(key, onDemandModule);
+    }
+    allOnDemandModules.add(onDemandModule);
+  }
+
+  /**
+   * Installs the bindings of the on-demand module which provides {@code key}, if there is one.
+   * Returns true if any bindings were installed.
+   */
+  private boolean installOnDemand(String key) {
+    if (onDemandModules.isEmpty()) {
+      return false;
+    }
+    OnDemandModule<?> onDemandModule = onDemandModules.get(key);
+    if (onDemandModule == null) {
+      return false;
+    }
+    install(onDemandModule);
+    return true;
+  }
+
+  private void install(OnDemandModule<?> onDemandModule) {
+    for (String providedKey : onDemandModule.adapter.getProvideKeys()) {
+      onDemandModules.remove(providedKey);
+    }
+    onDemandModule.installed = true;
+    for (Map.Entry<String, Binding<?>> entry : onDemandModule.getBindings().entrySet()) {
+      putIfAbsent(entry.getKey(), scope(entry.getValue()));
+    }
   }
 
   /**
@@ -101,16 +232,42 @@ public final class Linker {
     if (linkedBindings != null) {
       return linkedBindings;
     }
+    for (OnDemandModule<?> onDemandModule : allOnDemandModules) {
+      if (!onDemandModule.installed) {
+        install(onDemandModule);
+      }
+    }
+    allOnDemandModules.clear();
     for (Binding<?> binding : bindings.values()) {
       if (!binding.isLinked()) {
         toLink.add(binding);
       }
     }
     linkRequested(); // This method throws if bindings are not resolvable/linkable.
-    linkedBindings = Collections.unmodifiableMap(bindings);
+    if (lean) {
+      releaseLinkingState();
+    }
+    linkedBindings = new FrozenBindings(bindings);
+    bindings = new HashMap<String, Binding<?>>(); // Don't retain the entries of both tables.
     return linkedBindings;
   }
 
+  /**
+   * Replaces the work queues and the bindings by id, which keep the capacity they grew to while
+   * linking, with empty ones, and has every binding release its own linking state.
+   */
+  private void releaseLinkingState() {
+    toLink = new ArrayQueue<Binding<?>>();
+    errors = new ArrayList<String>();
+    deferredBindings = new HashMap<String, DeferredBinding>();
+    pendingCounts = new IdentityHashMap<Binding<?>, Integer>();
+    onDemandModules = new HashMap<String, OnDemandModule<?>>();
+    bindingsById = new BindingsById(); // Requests after linkAll() use the frozen bindings.
+    for (Binding<?> binding : bindings.values()) {
+      binding.releaseLinkingState();
+    }
+  }
+
   /**
    * Returns the map of all bindings available to this {@link Linker}, if and only if
    * {@link #linkAll()} has successfully returned at least once, otherwise it returns null;
@@ -119,6 +276,17 @@ public final class Linker {
     return linkedBindings;
   }
 
+  /**
+   * Returns the binding for {@code key} if {@link #linkAll()} has returned and it was linked by
+   * then, otherwise null. This doesn't need the lock: every binding it returns is fully linked
+   * and never changes. Bindings requested after linkAll() are only found by {@link
+   * #requestBinding}.
+   */
+  public Binding<?> linkedBinding(String key) {
+    Map<String, Binding<?>> linked = linkedBindings;
+    return linked != null ? linked.get(key) : null;
+  }
+
   /**
    * Links all requested bindings plus their transitive dependencies. This
    * creates JIT bindings as necessary to fill in the gaps.
@@ -134,8 +302,10 @@ public final class Linker {
         DeferredBinding deferred = (DeferredBinding) binding;
         String key = deferred.deferredKey;
         boolean mustHaveInjections = deferred.mustHaveInjections;
-        if (bindings.containsKey(key)) {
-          continue; // A binding for this key has since been linked.
+        deferredBindings.remove(key);
+        if (getBinding(key) != null) {
+          release(deferred); // A binding for this key has since been linked.
+          continue;
         }
         try {
           Binding<?> resolvedBinding =
@@ -164,16 +334,33 @@ public final class Linker {
         } catch (Exception e) {
           throw new RuntimeException(e);
         }
+        release(deferred);
+      } else if (binding.isLinked() || pendingCounts.containsKey(binding)) {
+        continue; // Enqueued by more than one request, or waiting for its dependencies.
+      } else if (binding instanceof AliasBinding) {
+        // If the target is missing, the alias is enqueued again once it has been created.
+        AliasBinding alias = (AliasBinding) binding;
+        attaching = alias;
+        try {
+          if (getBinding(alias.provideKey) == alias) {
+            resolve(alias);
+          }
+        } finally {
+          attaching = null;
+        }
       } else {
-        // Attempt to attach the binding to its dependencies. If any dependency
-        // is not available, the attach will fail. We'll enqueue creation of
-        // that dependency and retry the attachment later.
+        // Attempt to attach the binding to its dependencies. If any dependency is not available,
+        // the attach will fail and creation of that dependency is deferred. The binding is
+        // attached again once all of the dependencies it was missing have been created.
         attachSuccess = true;
-        binding.attach(this);
+        attaching = binding;
+        try {
+          binding.attach(this);
+        } finally {
+          attaching = null;
+        }
         if (attachSuccess) {
           binding.setLinked();
-        } else {
-          toLink.add(binding);
         }
       }
     }
@@ -185,6 +372,23 @@ public final class Linker {
     }
   }
 
+  /**
+   * Enqueues the bindings waiting for {@code deferred} whose other missing dependencies have all
+   * been created too.
+   */
+  private void release(DeferredBinding deferred) {
+    for (Binding<?> waiter : deferred.waiters) {
+      int pending = pendingCounts.get(waiter) - 1;
+      if (pending == 0) {
+        pendingCounts.remove(waiter);
+        toLink.add(waiter);
+      } else {
+        pendingCounts.put(waiter, pending);
+      }
+    }
+    deferred.waiters.clear();
+  }
+
   /**
    * Don't permit bindings to be linked without a lock. Callers should lock
    * before requesting any bindings, link the requested bindings, retrieve
@@ -275,7 +479,10 @@ public final class Linker {
 
     Binding<?> binding = null;
     for (Linker linker = this; linker != null; linker = linker.base) {
-      binding = linker.bindings.get(key);
+      binding = linker.getBinding(key);
+      if (binding == null && linker == this && installOnDemand(key)) {
+        binding = getBinding(key);
+      }
       if (binding != null) {
         if (linker != this && !binding.isLinked()) throw new AssertionError();
         break;
@@ -284,15 +491,90 @@ public final class Linker {
 
     if (binding == null) {
       // We can't satisfy this binding. Make sure it'll work next time!
-      Binding<?> deferredBinding =
-          new DeferredBinding(key, classLoader, requiredBy, mustHaveInjections);
-      deferredBinding.setLibrary(library);
-      deferredBinding.setDependedOn(true);
-      toLink.add(deferredBinding);
+      DeferredBinding deferredBinding = deferredBindings.get(key);
+      if (deferredBinding == null) {
+        deferredBinding = new DeferredBinding(key, classLoader, requiredBy, mustHaveInjections);
+        deferredBinding.setLibrary(library);
+        deferredBinding.setDependedOn(true);
+        deferredBindings.put(key, deferredBinding);
+        toLink.add(deferredBinding);
+      }
+      if (attaching != null) {
+        deferredBinding.waiters.add(attaching);
+        Integer pending = pendingCounts.get(attaching);
+        pendingCounts.put(attaching, pending != null ? pending + 1 : 1);
+      }
       attachSuccess = false;
       return null;
     }
 
+    if (binding instanceof AliasBinding) {
+      binding = resolve((AliasBinding) binding);
+      if (binding == null) {
+        return null; // The alias's target has been enqueued to be created.
+      }
+    }
+
+    if (!binding.isLinked()) {
+      toLink.add(binding); // This binding was never linked; link it now!
+    }
+
+    binding.setLibrary(library);
+    binding.setDependedOn(true);
+    return binding;
+  }
+
+  /**
+   * Replaces {@code alias} with the binding for its target key and returns that binding, or
+   * returns null if the target isn't available yet and has been enqueued to be linked.
+   */
+  private Binding<?> resolve(AliasBinding alias) {
+    if (alias.resolving) {
+      addError("Alias cycle: " + alias.provideKey + " is an alias of itself, required by "
+          + alias.requiredBy);
+      bindings.put(alias.provideKey, Binding.UNRESOLVED);
+      return Binding.UNRESOLVED;
+    }
+    alias.resolving = true;
+    try {
+      Binding<?> target =
+          requestBinding(alias.targetKey, alias.requiredBy, alias.classLoader, true, true);
+      if (target != null) {
+        bindings.put(alias.provideKey, target);
+      }
+      return target;
+    } finally {
+      alias.resolving = false;
+    }
+  }
+
+  /**
+   * Returns the binding for the key whose {@link KeyIds id} is {@code keyId} if it exists
+   * immediately. Otherwise this returns null.
+   */
+  public Binding<?> requestBinding(int keyId, Object requiredBy, ClassLoader classLoader) {
+    return requestBinding(keyId, requiredBy, classLoader, true, true);
+  }
+
+  /**
+   * Returns the binding for the key whose {@link KeyIds id} is {@code keyId} if it exists
+   * immediately. Otherwise this returns null. This behaves exactly like {@link
+   * #requestBinding(String, Object, ClassLoader, boolean, boolean)}.
+   */
+  public Binding<?> requestBinding(int keyId, Object requiredBy, ClassLoader classLoader,
+      boolean mustHaveInjections, boolean library) {
+    assertLockHeld();
+
+    Binding<?> binding = bindingsById.get(keyId);
+    if (binding == null) {
+      binding = requestBinding(
+          KeyIds.key(keyId), requiredBy, classLoader, mustHaveInjections, library);
+      if (binding != null) {
+        bindingsById.put(keyId, binding);
+      }
+      return binding;
+    }
+
     if (!binding.isLinked()) {
       toLink.add(binding); // This binding was never linked; link it now!
     }
@@ -308,10 +590,11 @@ public final class Linker {
     // key to already exist. This occurs when an @Provides method returns a type T
     // and we also inject the members of that type.
     if (binding.provideKey != null) {
-      putIfAbsent(bindings, binding.provideKey, binding);
+      installOnDemand(binding.provideKey); // An @Provides method takes precedence.
+      putIfAbsent(binding.provideKey, binding);
     }
     if (binding.membersKey != null) {
-      putIfAbsent(bindings, binding.membersKey, binding);
+      putIfAbsent(binding.membersKey, binding);
     }
   }
 
@@ -319,20 +602,38 @@ public final class Linker {
    * Returns a scoped binding for {@code binding}.
    */
   static <T> Binding<T> scope(final Binding<T> binding) {
-    if (!binding.isSingleton() || binding instanceof SingletonBinding) {
+    if (!binding.isSingleton() || binding instanceof SingletonBinding || binding.isSelfScoped()) {
       return binding; // Default scoped binding or already a scoped binding.
     }
     return new SingletonBinding<T>(binding);
   }
 
   /**
-   * Puts the mapping {@code key, value} in {@code map} if no mapping for {@code
+   * Returns this linker's binding for {@code key}, whether it was frozen by {@link #linkAll()} or
+   * added since, or null if it has none.
+   */
+  private Binding<?> getBinding(String key) {
+    Map<String, Binding<?>> linked = linkedBindings;
+    if (linked != null) {
+      Binding<?> binding = linked.get(key);
+      if (binding != null) {
+        return binding;
+      }
+    }
+    return bindings.get(key);
+  }
+
+  /**
+   * Puts the mapping {@code key, value} in {@code bindings} if no mapping for {@code
    * key} already exists.
    */
-  private <K, V> void putIfAbsent(Map<K, V> map, K key, V value) {
-    V replaced = map.put(key, value); // Optimistic: prefer only one hash operation lookup.
+  private void putIfAbsent(String key, Binding<?> value) {
+    if (linkedBindings != null && linkedBindings.containsKey(key)) {
+      return;
+    }
+    Binding<?> replaced = bindings.put(key, value); // Optimistic: prefer only one hash lookup.
     if (replaced != null) {
-      map.put(key, replaced);
+      bindings.put(key, replaced);
     }
   }
 
@@ -421,6 +722,11 @@ public final class Linker {
       binding.setLinked();
     }
 
+    @Override protected void releaseLinkingState() {
+      super.releaseLinkingState();
+      binding.releaseLinkingState();
+    }
+
     @Override public String toString() {
       return "@Singleton/" + binding.toString();
     }
@@ -443,11 +749,41 @@ public final class Linker {
     void handleErrors(List<String> errors);
   }
 
+  /** A module whose bindings are installed the first time one of its keys is requested. */
+  private static final class OnDemandModule<T> {
+    final ModuleAdapter<T> adapter;
+    final T module;
+    boolean installed;
+
+    OnDemandModule(ModuleAdapter<T> adapter, T module) {
+      this.adapter = adapter;
+      this.module = module;
+    }
+
+    BindingsGroup getBindings() {
+      BindingsGroup result = new BindingsGroup() {
+        @Override public Binding<?> contributeSetBinding(String key, SetBinding<?> value) {
+          throw new IllegalStateException(adapter.moduleClass.getName()
+              + " contributed a set binding but declared only its provide keys: " + key);
+        }
+      };
+      try {
+        adapter.getBindings(result, Modules.getOrCreate(adapter, module));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException(
+            adapter.moduleClass.getSimpleName() + ": " + e.getMessage(), e);
+      }
+      return result;
+    }
+  }
+
   private static class DeferredBinding extends Binding<Object> {
     /** Loader originally intended to load this binding, to be used in loading the actual one */
     final ClassLoader classLoader;
     final String deferredKey;
     final boolean mustHaveInjections;
+    /** Bindings whose attach() requested this key, to be attached again once it is created. */
+    final List<Binding<?>> waiters = new ArrayList<Binding<?>>();
 
     DeferredBinding(String deferredKey, ClassLoader classLoader, Object requiredBy,
         boolean mustHaveInjections) {
@@ -17,6 +17,8 @@
 package dagger.internal;
 
 import java.lang.reflect.AccessibleObject;
+import java.util.ArrayList;
+import java.util.List;
 
 
 /**
@@ -58,6 +60,23 @@ public abstract class Loader {
    */
   public abstract StaticInjection getStaticInjection(Class<?> injectedClass);
 
+  /**
+   * Returns the loader for a graph which extends the graph of this loader with {@code
+   * rootModule}. This returns this loader unless a subclass knows more about that graph.
+   */
+  public Loader forExtension(Class<?> rootModule) {
+    return this;
+  }
+
+  /**
+   * Returns new {@code @Inject} bindings which the extension graph served by this loader is known
+   * to create itself, so that they can be installed before it is linked. By default no bindings
+   * are known in advance.
+   */
+  public List<Binding<?>> getExtensionBindings() {
+    return new ArrayList<Binding<?>>();
+  }
+
   /**
    * Loads a class from a {@code ClassLoader}-specific cache if it's already there, or
    * loads it from the given {@code ClassLoader} and caching it for future requests.  Failures
@@ -50,6 +50,28 @@ public abstract class ModuleAdapter<T> {
     // no-op;
   }
 
+  /**
+   * Returns the keys of the bindings contributed by {@link #getBindings}, or null if they are not
+   * known ahead of time. A module whose keys are known, and which doesn't override other
+   * bindings, is only created and asked for its bindings once one of these keys is requested.
+   */
+  public String[] getProvideKeys() {
+    return null;
+  }
+
+  /** Returns true if creating this module and its bindings can wait until they are needed. */
+  public final boolean isDeferrable() {
+    return !overrides && getProvideKeys() != null;
+  }
+
+  /**
+   * Returns true if {@link #getBindings} uses the module instance it is passed. Modules whose
+   * {@code @Provides} methods are all static return false, and are never created.
+   */
+  public boolean needsInstance() {
+    return true;
+  }
+
   /**
    * Returns a new instance of the module class created using a no-args
    * constructor. Only used when a manually-constructed module is not supplied.
@@ -29,7 +29,10 @@ public final class Modules {
 
   /**
    * Returns a full set of module adapters, including module adapters for included
-   * modules.
+   * modules, each mapped to its module instance. Modules which were not supplied as
+   * instances are created here, unless they are {@linkplain ModuleAdapter#isDeferrable()
+   * deferrable}, in which case they map to null and are created when first needed, or
+   * don't {@linkplain ModuleAdapter#needsInstance() need an instance} at all.
    */
   public static Map<ModuleAdapter<?>, Object> loadModules(Loader loader,
       Object[] seedModulesOrClasses) {
@@ -38,7 +41,7 @@ public final class Modules {
     for (int i = 0; i < seedModulesOrClasses.length; i++) {
       if (seedModulesOrClasses[i] instanceof Class<?>) {
         ModuleAdapter<?> adapter = loader.getModuleAdapter((Class<?>) seedModulesOrClasses[i]);
-        seedAdapters.put(adapter, adapter.newModule());
+        seedAdapters.put(adapter, newModuleIfEager(adapter));
       } else {
         ModuleAdapter<?> adapter = loader.getModuleAdapter(seedModulesOrClasses[i].getClass());
         seedAdapters.put(adapter, seedModulesOrClasses[i]);
@@ -59,12 +62,25 @@ public final class Modules {
     // and create them if necessary
     for (ModuleAdapter<?> dependency : transitiveInclusions.values()) {
       if (!result.containsKey(dependency)) {
-        result.put(dependency, dependency.newModule());
+        result.put(dependency, newModuleIfEager(dependency));
       }
     }
     return result;
   }
 
+  /**
+   * Returns {@code module}, or a new instance of the module class of {@code adapter} if {@code
+   * module} is null because its creation was deferred. Returns null for modules that don't need
+   * an instance.
+   */
+  public static <T> T getOrCreate(ModuleAdapter<T> adapter, T module) {
+    return module != null || !adapter.needsInstance() ? module : adapter.newModule();
+  }
+
+  private static Object newModuleIfEager(ModuleAdapter<?> adapter) {
+    return adapter.isDeferrable() || !adapter.needsInstance() ? null : adapter.newModule();
+  }
+
   /**
    * Fills {@code result} with the module adapters for the includes of {@code
    * adapter}, and their includes recursively.
@@ -17,9 +17,13 @@ package dagger.internal;
 
 import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Detects problems like cyclic dependencies.
@@ -48,37 +52,220 @@ public final class ProblemDetector {
     }
   }
 
+  /**
+   * Finds the strongly connected components of the bindings reachable from {@code bindings} with
+   * Tarjan's algorithm, and reports a cycle from each component that has one. The walk uses
+   * explicit stacks over int-indexed bindings, so it takes time linear in the number of
+   * dependencies, and deep graphs don't overflow the call stack.
+   */
   private static void detectCircularDependencies(Collection<Binding<?>> bindings,
-      List<Binding<?>> path) {
+      List<Binding<?>> nodes) {
+    // Index every reachable binding and its dependencies. Cycle-free bindings are left out: they
+    // were checked by an earlier pass, and nothing they reach is part of a cycle.
+    Map<Binding<?>, Integer> indices = new IdentityHashMap<Binding<?>, Integer>();
+    List<int[]> edges = new ArrayList<int[]>();
     for (Binding<?> binding : bindings) {
-      if (binding.isCycleFree()) {
+      indexOf(binding, indices, nodes);
+    }
+    ArraySet<Binding<?>> dependencies = new ArraySet<Binding<?>>();
+    for (int v = 0; v < nodes.size(); v++) {
+      dependencies.clear();
+      nodes.get(v).getDependencies(dependencies, dependencies);
+      int[] successors = new int[dependencies.list.size()];
+      int count = 0;
+      for (Binding<?> dependency : dependencies.list) {
+        int w = indexOf(dependency, indices, nodes);
+        if (w != -1) {
+          successors[count++] = w;
+        }
+      }
+      if (count != successors.length) {
+        int[] trimmed = new int[count];
+        System.arraycopy(successors, 0, trimmed, 0, count);
+        successors = trimmed;
+      }
+      edges.add(successors);
+    }
+
+    int size = nodes.size();
+    int[] index = new int[size];
+    int[] lowLink = new int[size];
+    int[] edgeCursor = new int[size];
+    int[] callStack = new int[size];
+    int[] componentStack = new int[size];
+    boolean[] onComponentStack = new boolean[size];
+    boolean[] cycleFree = new boolean[size];
+    Arrays.fill(index, -1);
+    List<int[]> cyclicComponents = new ArrayList<int[]>();
+    int nextIndex = 0;
+    int componentTop = 0;
+
+    for (int root = 0; root < size; root++) {
+      if (index[root] != -1) {
         continue;
       }
+      int callTop = 0;
+      callStack[callTop++] = root;
+      index[root] = lowLink[root] = nextIndex++;
+      componentStack[componentTop++] = root;
+      onComponentStack[root] = true;
+
+      while (callTop > 0) {
+        int v = callStack[callTop - 1];
+        int[] successors = edges.get(v);
+        if (edgeCursor[v] < successors.length) {
+          int w = successors[edgeCursor[v]++];
+          if (index[w] == -1) {
+            callStack[callTop++] = w;
+            index[w] = lowLink[w] = nextIndex++;
+            componentStack[componentTop++] = w;
+            onComponentStack[w] = true;
+          } else if (onComponentStack[w]) {
+            lowLink[v] = Math.min(lowLink[v], index[w]);
+          }
+          continue;
+        }
+
+        callTop--;
+        if (callTop > 0) {
+          int parent = callStack[callTop - 1];
+          lowLink[parent] = Math.min(lowLink[parent], lowLink[v]);
+        }
+        if (lowLink[v] != index[v]) {
+          continue; // v belongs to the component of a binding still on the call stack.
+        }
+
+        // v is the root of a component. Components complete after everything they depend on,
+        // so a single binding without a self-dependency is cycle-free if its dependencies are.
+        int componentStart = componentTop;
+        do {
+          onComponentStack[componentStack[--componentStart]] = false;
+        } while (componentStack[componentStart] != v);
+        int[] component = new int[componentTop - componentStart];
+        System.arraycopy(componentStack, componentStart, component, 0, component.length);
+        componentTop = componentStart;
+        if (component.length == 1 && !contains(successors, v)) {
+          boolean free = true;
+          for (int w : successors) {
+            free &= cycleFree[w];
+          }
+          cycleFree[v] = free;
+        } else {
+          cyclicComponents.add(component);
+        }
+      }
+    }
+
+    for (int v = 0; v < size; v++) {
+      if (cycleFree[v]) {
+        nodes.get(v).setCycleFree(true);
+      }
+    }
+    if (!cyclicComponents.isEmpty()) {
+      throw new IllegalStateException(cyclesMessage(cyclicComponents, nodes, edges));
+    }
+  }
+
+  /**
+   * Returns the index of {@code binding}, indexing it if necessary, or -1 if it is known to be
+   * cycle-free.
+   */
+  private static int indexOf(Binding<?> binding, Map<Binding<?>, Integer> indices,
+      List<Binding<?>> nodes) {
+    if (binding.isCycleFree()) {
+      return -1;
+    }
+    Integer index = indices.get(binding);
+    if (index == null) {
+      index = nodes.size();
+      indices.put(binding, index);
+      nodes.add(binding);
+    }
+    return index;
+  }
+
+  private static boolean contains(int[] values, int value) {
+    for (int v : values) {
+      if (v == value) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Describes one cycle through each of {@code components}, starting at the binding that was
+   * indexed first. Components are described in the order of their first bindings.
+   */
+  private static String cyclesMessage(List<int[]> components, List<Binding<?>> nodes,
+      List<int[]> edges) {
+    int[] starts = new int[components.size()];
+    for (int c = 0; c < components.size(); c++) {
+      int start = Integer.MAX_VALUE;
+      for (int v : components.get(c)) {
+        start = Math.min(start, v);
+      }
+      starts[c] = start;
+    }
+    Arrays.sort(starts);
 
-      if (binding.isVisiting()) {
-        int index = path.indexOf(binding);
-        StringBuilder message = new StringBuilder()
-            .append("Dependency cycle:");
-        for (int i = index; i < path.size(); i++) {
-          message.append("\n    ").append(i - index).append(". ")
-              .append(path.get(i).provideKey).append(" bound by ").append(path.get(i));
+    boolean[] inComponent = new boolean[nodes.size()];
+    int[] previous = new int[nodes.size()];
+    StringBuilder message = new StringBuilder();
+    for (int start : starts) {
+      for (int[] component : components) {
+        if (contains(component, start)) {
+          for (int v : component) {
+            inComponent[v] = true;
+          }
         }
-        message.append("\n    ").append(0).append(". ").append(binding.provideKey);
-        throw new IllegalStateException(message.toString());
       }
+      List<Binding<?>> cycle = shortestCycle(start, edges, inComponent, previous, nodes);
+      Arrays.fill(inComponent, false);
 
-      binding.setVisiting(true);
-      path.add(binding);
-      try {
-        ArraySet<Binding<?>> dependencies = new ArraySet<Binding<?>>();
-        binding.getDependencies(dependencies, dependencies);
-        detectCircularDependencies(dependencies, path);
-        binding.setCycleFree(true);
-      } finally {
-        path.remove(path.size() - 1);
-        binding.setVisiting(false);
+      if (message.length() > 0) {
+        message.append("\n");
       }
+      message.append("Dependency cycle:");
+      for (int i = 0; i < cycle.size(); i++) {
+        message.append("\n    ").append(i).append(". ")
+            .append(cycle.get(i).provideKey).append(" bound by ").append(cycle.get(i));
+      }
+      message.append("\n    ").append(0).append(". ").append(cycle.get(0).provideKey);
+    }
+    return message.toString();
+  }
+
+  /**
+   * Returns the bindings of the shortest cycle from {@code start} back to itself, found with a
+   * breadth-first search of the bindings in {@code start}'s component.
+   */
+  private static List<Binding<?>> shortestCycle(int start, List<int[]> edges,
+      boolean[] inComponent, int[] previous, List<Binding<?>> nodes) {
+    Arrays.fill(previous, -1);
+    ArrayQueue<Integer> queue = new ArrayQueue<Integer>();
+    queue.add(start);
+    int last = -1;
+    while (last == -1) {
+      int v = queue.remove();
+      for (int w : edges.get(v)) {
+        if (w == start) {
+          last = v;
+          break;
+        }
+        if (inComponent[w] && previous[w] == -1) {
+          previous[w] = v;
+          queue.add(w);
+        }
+      }
+    }
+    List<Binding<?>> result = new ArrayList<Binding<?>>();
+    for (int v = last; v != start; v = previous[v]) {
+      result.add(nodes.get(v));
     }
+    result.add(nodes.get(start));
+    Collections.reverse(result);
+    return result;
   }
 
   public void detectProblems(Collection<Binding<?>> values) {
@@ -98,6 +285,10 @@ public final class ProblemDetector {
       return list.iterator();
     }
 
+    @Override public void clear() {
+      list.clear();
+    }
+
     @Override public int size() {
       throw new UnsupportedOperationException();
     }
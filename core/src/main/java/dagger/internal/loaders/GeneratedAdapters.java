@@ -25,6 +25,7 @@ public final class GeneratedAdapters {
   public static final String INJECT_ADAPTER_SUFFIX = SEPARATOR + "InjectAdapter";
   public static final String MODULE_ADAPTER_SUFFIX = SEPARATOR + "ModuleAdapter";
   public static final String STATIC_INJECTION_SUFFIX = SEPARATOR + "StaticInjection";
+  public static final String GRAPH_ADAPTER_SUFFIX = SEPARATOR + "GraphAdapter";
 
   private GeneratedAdapters() { }
 }
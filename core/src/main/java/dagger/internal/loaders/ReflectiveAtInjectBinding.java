@@ -15,10 +15,13 @@
  */
 package dagger.internal.loaders;
 
+import dagger.Assisted;
 import dagger.internal.Binding;
 import dagger.internal.Keys;
 import dagger.internal.Linker;
 import java.lang.annotation.Annotation;
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
@@ -27,7 +30,9 @@ import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -36,11 +41,18 @@ import javax.inject.Singleton;
  * using reflection.
  */
 public final class ReflectiveAtInjectBinding<T> extends Binding<T> {
+  /**
+   * Reflective metadata by class, shared by every graph. Classes are weakly referenced so they can
+   * be unloaded, and the metadata softly referenced because it refers back to its class.
+   */
+  private static final Map<Class<?>, Reference<Metadata<?>>> METADATA =
+      new WeakHashMap<Class<?>, Reference<Metadata<?>>>();
+
   private final Field[] fields;
   private final ClassLoader loader;
   private final Constructor<T> constructor;
   private final Class<?> supertype;
-  private final String[] keys;
+  private String[] keys;
   private final Binding<?>[] fieldBindings;
   private final Binding<?>[] parameterBindings;
   private Binding<? super T> supertypeBinding;
@@ -66,6 +78,11 @@ public final class ReflectiveAtInjectBinding<T> extends Binding<T> {
     this.loader = type.getClassLoader();
   }
 
+  @Override protected void releaseLinkingState() {
+    super.releaseLinkingState();
+    keys = null;
+  }
+
   @SuppressWarnings("unchecked") // We're careful to make keys and bindings match up.
   @Override public void attach(Linker linker) {
     int k = 0;
@@ -142,6 +159,44 @@ public final class ReflectiveAtInjectBinding<T> extends Binding<T> {
   }
 
   public static <T> Binding<T> create(Class<T> type, boolean mustHaveInjections) {
+    Metadata<T> metadata = metadata(type);
+    if (metadata.constructor == null) {
+      if (metadata.fields.length == 0 && mustHaveInjections) {
+        throw new InvalidBindingException(type.getName(),
+            "has no injectable members. Do you want to add an injectable constructor?");
+      }
+      if (metadata.singleton) {
+        throw new IllegalArgumentException(
+            "No injectable constructor on @Singleton " + type.getName());
+      }
+    }
+    return new ReflectiveAtInjectBinding<T>(metadata.provideKey, metadata.membersKey,
+        metadata.singleton, type, metadata.fields, metadata.constructor, metadata.parameterCount,
+        metadata.supertype, metadata.keys);
+  }
+
+  /**
+   * Returns the reflective metadata of {@code type}, scanning it only if no graph has done so
+   * since its metadata was last collected.
+   */
+  @SuppressWarnings("unchecked") // Each class is only ever mapped to its own metadata.
+  private static <T> Metadata<T> metadata(Class<T> type) {
+    synchronized (METADATA) {
+      Reference<Metadata<?>> reference = METADATA.get(type);
+      Metadata<?> metadata = reference != null ? reference.get() : null;
+      if (metadata != null) {
+        return (Metadata<T>) metadata;
+      }
+    }
+    // Scanning may race and create more than one instance, but they are all equivalent.
+    Metadata<T> metadata = scan(type);
+    synchronized (METADATA) {
+      METADATA.put(type, new SoftReference<Metadata<?>>(metadata));
+    }
+    return metadata;
+  }
+
+  private static <T> Metadata<T> scan(Class<T> type) {
     boolean singleton = type.isAnnotationPresent(Singleton.class);
     List<String> keys = new ArrayList<String>();
 
@@ -174,15 +229,10 @@ public final class ReflectiveAtInjectBinding<T> extends Binding<T> {
       }
       injectedConstructor = constructor;
     }
-    if (injectedConstructor == null) {
-      if (!injectedFields.isEmpty()) {
-        try {
-          injectedConstructor = type.getDeclaredConstructor();
-        } catch (NoSuchMethodException ignored) {
-        }
-      } else if (mustHaveInjections) {
-        throw new InvalidBindingException(type.getName(),
-            "has no injectable members. Do you want to add an injectable constructor?");
+    if (injectedConstructor == null && !injectedFields.isEmpty()) {
+      try {
+        injectedConstructor = type.getDeclaredConstructor();
+      } catch (NoSuchMethodException ignored) {
       }
     }
 
@@ -200,16 +250,17 @@ public final class ReflectiveAtInjectBinding<T> extends Binding<T> {
       if (parameterCount != 0) {
         Annotation[][] annotations = injectedConstructor.getParameterAnnotations();
         for (int p = 0; p < types.length; p++) {
+          if (isAssisted(annotations[p])) {
+            throw new InvalidBindingException(type.getName(),
+                "has @Assisted constructor parameters and can only be created by its "
+                + "@AssistedFactory");
+          }
           keys.add(Keys.get(types[p], annotations[p], injectedConstructor));
         }
       }
     } else {
       provideKey = null;
       parameterCount = 0;
-      if (singleton) {
-        throw new IllegalArgumentException(
-            "No injectable constructor on @Singleton " + type.getName());
-      }
     }
 
     Class<? super T> supertype = type.getSuperclass();
@@ -221,14 +272,49 @@ public final class ReflectiveAtInjectBinding<T> extends Binding<T> {
       }
     }
 
-    String membersKey = Keys.getMembersKey(type);
-    return new ReflectiveAtInjectBinding<T>(provideKey, membersKey, singleton, type,
+    return new Metadata<T>(singleton, provideKey, Keys.getMembersKey(type),
         injectedFields.toArray(new Field[injectedFields.size()]), injectedConstructor,
         parameterCount, supertype, keys.toArray(new String[keys.size()]));
   }
 
+  private static boolean isAssisted(Annotation[] annotations) {
+    for (Annotation annotation : annotations) {
+      if (annotation.annotationType() == Assisted.class) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   @SuppressWarnings("unchecked") // Class.getDeclaredConstructors is an unsafe API.
   private static <T> Constructor<T>[] getConstructorsForType(Class<T> type) {
     return (Constructor<T>[]) type.getDeclaredConstructors();
   }
+
+  /**
+   * What reflection finds on a class. None of it depends on the graph, so it is shared by every
+   * binding for the class and only the link state is allocated per graph.
+   */
+  private static final class Metadata<T> {
+    final boolean singleton;
+    final String provideKey;
+    final String membersKey;
+    final Field[] fields;
+    final Constructor<T> constructor;
+    final int parameterCount;
+    final Class<?> supertype;
+    final String[] keys;
+
+    Metadata(boolean singleton, String provideKey, String membersKey, Field[] fields,
+        Constructor<T> constructor, int parameterCount, Class<?> supertype, String[] keys) {
+      this.singleton = singleton;
+      this.provideKey = provideKey;
+      this.membersKey = membersKey;
+      this.fields = fields;
+      this.constructor = constructor;
+      this.parameterCount = parameterCount;
+      this.supertype = supertype;
+      this.keys = keys;
+    }
+  }
 }
@@ -103,6 +103,15 @@ public final class ExtensionTest {
     assertThat(request1.get(C.class).a).isSameAs(request2.get(C.class).a);
   }
 
+  @Test public void leanGraphsStillExtend() {
+    ObjectGraph root = ObjectGraph.createLeanWith(new TestingLoader(), new RootModule());
+    root.validate();
+    ObjectGraph extension = root.plus(new ExtensionModule());
+    extension.validate();
+    assertThat(extension.get(A.class)).isSameAs(root.get(A.class));
+    assertThat(extension.get(D.class).c).isSameAs(extension.get(C.class));
+  }
+
   private void assertFailInjectNotRegistered(ObjectGraph graph, Class<?> clazz) {
     try {
       assertThat(graph.get(clazz)).isNull();
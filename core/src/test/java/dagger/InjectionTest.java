@@ -24,6 +24,10 @@ import java.util.Collections;
 import java.util.List;
 import java.util.RandomAccess;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -934,4 +938,165 @@ public final class InjectionTest {
       assertThat(e.getMessage()).contains("Unable to create binding for java.util.ArrayList");
     }
   }
+
+  @Test public void getProvider() {
+    @Module(injects = { A.class, C.class })
+    class TestModule {
+    }
+
+    ObjectGraph graph = ObjectGraph.createWith(new TestingLoader(), new TestModule());
+    Provider<A> aProvider = graph.getProvider(A.class);
+    assertThat(aProvider.get()).isNotNull();
+    assertThat(aProvider.get()).isNotSameAs(aProvider.get());
+    Provider<C> cProvider = graph.getProvider(C.class);
+    assertThat(cProvider.get()).isSameAs(graph.get(C.class));
+  }
+
+  @Test public void getProviderOfTypeThatIsNotInjectableFails() {
+    @Module(injects = A.class)
+    class TestModule {
+    }
+
+    ObjectGraph graph = ObjectGraph.createWith(new TestingLoader(), new TestModule());
+    try {
+      graph.getProvider(B.class);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getMessage()).contains("No inject registered for members/" + B.class.getName());
+    }
+  }
+
+  @Test public void getMembersInjector() {
+    @Module(injects = InjectMembersOnly.class)
+    class TestModule {
+      @Provides String provideString() {
+        return "injected";
+      }
+    }
+
+    ObjectGraph graph = ObjectGraph.createWith(new TestingLoader(), new TestModule());
+    MembersInjector<InjectMembersOnly> injector =
+        graph.getMembersInjector(InjectMembersOnly.class);
+    for (int i = 0; i < 3; i++) {
+      InjectMembersOnly instance = new InjectMembersOnly(null);
+      injector.injectMembers(instance);
+      assertThat(instance.string).isEqualTo("injected");
+    }
+  }
+
+  @Test public void getProviders() {
+    @Module(injects = { A.class, C.class, G.class })
+    class TestModule {
+      @Provides E provideE(F f) {
+        return new E(f);
+      }
+      @Provides F provideF() {
+        return new F();
+      }
+    }
+
+    ObjectGraph graph = ObjectGraph.createWith(new TestingLoader(), new TestModule());
+    List<Provider<?>> providers = graph.getProviders(G.class, A.class, C.class);
+    assertThat(providers).hasSize(3);
+    G g = (G) providers.get(0).get();
+    assertThat(g.e.f).isNotNull();
+    assertThat(providers.get(1).get()).isInstanceOf(A.class);
+    assertThat(providers.get(2).get()).isSameAs(g.c);
+    assertThat(graph.getProviders(C.class).get(0)).isSameAs(providers.get(2));
+  }
+
+  @Test public void getProvidersFailsIfAnyTypeIsNotInjectable() {
+    @Module(injects = A.class)
+    class TestModule {
+    }
+
+    ObjectGraph graph = ObjectGraph.createWith(new TestingLoader(), new TestModule());
+    try {
+      graph.getProviders(A.class, B.class);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getMessage()).contains("No inject registered for members/" + B.class.getName());
+    }
+  }
+
+  static class InjectAllSubclass extends InjectMembersOnly {
+    InjectAllSubclass() {
+      super(null);
+    }
+  }
+
+  @Module(injects = InjectMembersOnly.class)
+  static class InjectAllModule {
+    @Provides String provideString() {
+      return "injected";
+    }
+  }
+
+  @Test public void injectAll() {
+    ObjectGraph graph = ObjectGraph.createWith(new TestingLoader(), new InjectAllModule());
+    List<InjectMembersOnly> instances = new ArrayList<InjectMembersOnly>();
+    for (int i = 0; i < 100; i++) {
+      instances.add(new InjectMembersOnly(null));
+    }
+    graph.injectAll(InjectMembersOnly.class, instances);
+    for (InjectMembersOnly instance : instances) {
+      assertThat(instance.string).isEqualTo("injected");
+    }
+  }
+
+  @Test public void injectAllOnExecutor() {
+    ObjectGraph graph = ObjectGraph.createWith(new TestingLoader(), new InjectAllModule());
+    List<InjectMembersOnly> instances = new ArrayList<InjectMembersOnly>();
+    for (int i = 0; i < 1000; i++) {
+      instances.add(new InjectMembersOnly(null));
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      graph.injectAll(InjectMembersOnly.class, instances, executor);
+    } finally {
+      executor.shutdown();
+    }
+    for (InjectMembersOnly instance : instances) {
+      assertThat(instance.string).isEqualTo("injected");
+    }
+  }
+
+  @Test public void injectAllOnExecutorWhichRejectsWork() throws InterruptedException {
+    ObjectGraph graph = ObjectGraph.createWith(new TestingLoader(), new InjectAllModule());
+    List<InjectMembersOnly> instances = new ArrayList<InjectMembersOnly>();
+    for (int i = 0; i < 1000; i++) {
+      instances.add(new InjectMembersOnly(null));
+    }
+    final List<Thread> started = new ArrayList<Thread>();
+    Executor executor = new Executor() {
+      @Override public void execute(Runnable command) {
+        if (!started.isEmpty()) {
+          throw new RejectedExecutionException();
+        }
+        Thread thread = new Thread(command);
+        started.add(thread);
+        thread.start();
+      }
+    };
+    graph.injectAll(InjectMembersOnly.class, instances, executor);
+    for (InjectMembersOnly instance : instances) {
+      assertThat(instance.string).isEqualTo("injected");
+    }
+    for (Thread thread : started) {
+      thread.join();
+    }
+  }
+
+  @Test public void injectAllRejectsSubclassesBeforeInjectingAny() {
+    ObjectGraph graph = ObjectGraph.createWith(new TestingLoader(), new InjectAllModule());
+    InjectMembersOnly first = new InjectMembersOnly(null);
+    List<InjectMembersOnly> instances = Arrays.asList(first, new InjectAllSubclass());
+    try {
+      graph.injectAll(InjectMembersOnly.class, instances);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getMessage()).contains("but got " + InjectAllSubclass.class.getName());
+    }
+    assertThat(first.string).isNull();
+  }
 }
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger;
+
+import dagger.internal.Binding;
+import dagger.internal.Keys;
+import dagger.internal.Loader;
+import dagger.internal.ModuleAdapter;
+import dagger.internal.StaticInjection;
+import dagger.internal.TestingLoader;
+import dagger.internal.TestingModuleAdapter;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import javax.inject.Inject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Modules whose provide keys are known are only created, and asked for their bindings, once one
+ * of those keys is needed.
+ */
+@RunWith(JUnit4.class)
+public final class OnDemandModulesTest {
+  static final List<String> events = new ArrayList<String>();
+
+  @Before public void setUp() {
+    events.clear();
+  }
+
+  static class EntryPoint {
+    @Inject String string;
+  }
+
+  @Module(injects = EntryPoint.class, includes = { StringModule.class, IntegerModule.class })
+  static class RootModule {
+    RootModule() {
+      events.add("RootModule");
+    }
+  }
+
+  @Module(library = true)
+  static class StringModule {
+    StringModule() {
+      events.add("StringModule");
+    }
+
+    @Provides String provideString() {
+      events.add("provideString");
+      return "a";
+    }
+  }
+
+  @Module(library = true)
+  static class IntegerModule {
+    IntegerModule() {
+      events.add("IntegerModule");
+    }
+
+    @Provides Integer provideInteger() {
+      return 1;
+    }
+  }
+
+  @Module(library = true)
+  static class OtherStringModule {
+    @Provides String provideString() {
+      return "b";
+    }
+  }
+
+  @Module(overrides = true, library = true)
+  static class OverridingModule {
+    @Provides String provideString() {
+      return "overridden";
+    }
+  }
+
+  @Module(injects = EntryPoint.class)
+  static class UnusedBindingModule {
+    @Provides String provideString() {
+      return "a";
+    }
+
+    @Provides Integer provideInteger() {
+      return 1;
+    }
+  }
+
+  @Test public void modulesAreCreatedWhenTheirKeysAreRequested() {
+    ObjectGraph graph = ObjectGraph.createWith(new OnDemandLoader(), RootModule.class);
+    assertThat(events).isEmpty();
+
+    EntryPoint entryPoint = graph.get(EntryPoint.class);
+    assertThat(entryPoint.string).isEqualTo("a");
+    assertThat(events).containsExactly("StringModule", "provideString").inOrder();
+  }
+
+  @Test public void validateCreatesEveryModule() {
+    ObjectGraph graph = ObjectGraph.createWith(new OnDemandLoader(), RootModule.class);
+    graph.validate();
+    assertThat(events).containsExactly("RootModule", "StringModule", "IntegerModule");
+  }
+
+  @Test public void validateStillReportsUnusedBindings() {
+    ObjectGraph graph = ObjectGraph.createWith(new OnDemandLoader(), UnusedBindingModule.class);
+    try {
+      graph.validate();
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  @Test public void duplicateBindingsFailGraphCreation() {
+    try {
+      ObjectGraph.createWith(new OnDemandLoader(), RootModule.class, OtherStringModule.class);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getMessage()).startsWith("StringModule: Duplicate");
+    }
+  }
+
+  @Test public void overridesTakePrecedence() {
+    ObjectGraph graph = ObjectGraph.createWith(
+        new OnDemandLoader(), RootModule.class, new OverridingModule());
+    assertThat(graph.get(EntryPoint.class).string).isEqualTo("overridden");
+    graph.validate();
+    assertThat(graph.get(EntryPoint.class).string).isEqualTo("overridden");
+  }
+
+  @Test public void plusLinksDeferredModulesOfTheParent() {
+    ObjectGraph graph = ObjectGraph.createWith(new OnDemandLoader(), RootModule.class);
+    graph.plus();
+    assertThat(events).containsExactly("RootModule", "StringModule", "IntegerModule");
+  }
+
+  /** Loads reflective module adapters which declare their keys, like generated adapters do. */
+  static final class OnDemandLoader extends Loader {
+    private final Loader delegate = new TestingLoader();
+
+    @Override public <T> ModuleAdapter<T> getModuleAdapter(final Class<T> type) {
+      return new TestingModuleAdapter<T>(type, type.getAnnotation(Module.class)) {
+        @Override public String[] getProvideKeys() {
+          List<String> result = new ArrayList<String>();
+          for (Method method : type.getDeclaredMethods()) {
+            if (method.isAnnotationPresent(Provides.class)) {
+              result.add(Keys.get(method.getGenericReturnType()));
+            }
+          }
+          return result.toArray(new String[result.size()]);
+        }
+      };
+    }
+
+    @Override public Binding<?> getAtInjectBinding(
+        String key, String className, ClassLoader classLoader, boolean mustHaveInjections) {
+      return delegate.getAtInjectBinding(key, className, classLoader, mustHaveInjections);
+    }
+
+    @Override public StaticInjection getStaticInjection(Class<?> injectedClass) {
+      return delegate.getStaticInjection(injectedClass);
+    }
+  }
+}
@@ -15,12 +15,20 @@
  */
 package dagger;
 
+import dagger.internal.Binding;
+import dagger.internal.ProblemDetector;
 import dagger.internal.TestingLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 import javax.inject.Inject;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.fail;
 
 @RunWith(JUnit4.class)
@@ -76,6 +84,94 @@ public final class ProblemDetectorTest {
     graph.validate();
   }
 
+  @Test public void everyCycleIsReported() {
+    @Module(library = true)
+    class TestModule {
+      @Provides Integer provideInteger(String s) {
+        throw new AssertionError();
+      }
+      @Provides String provideString(Integer i) {
+        throw new AssertionError();
+      }
+      @Provides Long provideLong(Double d) {
+        throw new AssertionError();
+      }
+      @Provides Double provideDouble(Long l) {
+        throw new AssertionError();
+      }
+    }
+
+    ObjectGraph graph = ObjectGraph.createWith(new TestingLoader(), new TestModule());
+    try {
+      graph.validate();
+      fail();
+    } catch (IllegalStateException expected) {
+      assertThat(Arrays.asList(expected.getMessage().split("Dependency cycle:"))).hasSize(3);
+    }
+  }
+
+  @Test public void selfDependencyIsACycle() {
+    TestBinding binding = new TestBinding("self");
+    binding.dependencies.add(binding);
+    try {
+      new ProblemDetector().detectCircularDependencies(Arrays.<Binding<?>>asList(binding));
+      fail();
+    } catch (IllegalStateException expected) {
+      assertThat(expected.getMessage()).isEqualTo("Dependency cycle:"
+          + "\n    0. self bound by " + binding
+          + "\n    0. self");
+    }
+  }
+
+  @Test public void cycleIsReportedFromItsFirstBinding() {
+    TestBinding a = new TestBinding("a");
+    TestBinding b = new TestBinding("b");
+    TestBinding c = new TestBinding("c");
+    a.dependencies.add(b);
+    b.dependencies.add(c);
+    c.dependencies.add(a);
+    try {
+      new ProblemDetector().detectCircularDependencies(Arrays.<Binding<?>>asList(a, b, c));
+      fail();
+    } catch (IllegalStateException expected) {
+      assertThat(expected.getMessage()).isEqualTo("Dependency cycle:"
+          + "\n    0. a bound by " + a
+          + "\n    1. b bound by " + b
+          + "\n    2. c bound by " + c
+          + "\n    0. a");
+    }
+  }
+
+  @Test public void deepGraphsDoNotOverflowTheStack() {
+    List<Binding<?>> chain = new ArrayList<Binding<?>>();
+    TestBinding previous = null;
+    for (int i = 0; i < 100000; i++) {
+      TestBinding binding = new TestBinding("binding" + i);
+      if (previous != null) {
+        binding.dependencies.add(previous);
+      }
+      chain.add(binding);
+      previous = binding;
+    }
+    Collections.reverse(chain); // Start from the deepest end.
+    new ProblemDetector().detectCircularDependencies(chain);
+    for (Binding<?> binding : chain) {
+      assertThat(binding.isCycleFree()).isTrue();
+    }
+  }
+
+  static class TestBinding extends Binding<Object> {
+    final List<Binding<?>> dependencies = new ArrayList<Binding<?>>();
+
+    TestBinding(String key) {
+      super(key, null, false, key);
+    }
+
+    @Override public void getDependencies(Set<Binding<?>> get, Set<Binding<?>> injectMembers) {
+      get.addAll(dependencies);
+    }
+  }
+
   static class Rock {
     @Inject Scissors scissors;
   }
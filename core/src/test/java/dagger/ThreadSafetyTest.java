@@ -16,6 +16,7 @@
  */
 package dagger;
 
+import dagger.internal.StressHarness;
 import dagger.internal.TestingLoader;
 import java.util.ArrayList;
 import java.util.List;
@@ -92,6 +93,74 @@ public final class ThreadSafetyTest {
     }
   }
 
+  static class SingletonEntryPoint {
+    @Inject Object object;
+  }
+
+  @Module(injects = SingletonEntryPoint.class)
+  static class CountingSingletonModule {
+    final AtomicInteger count = new AtomicInteger();
+
+    @Provides @Singleton Object provideObject() {
+      count.getAndIncrement();
+      return new Object();
+    }
+  }
+
+  @Module(addsTo = CountingSingletonModule.class, injects = SingletonEntryPoint.class,
+      overrides = true)
+  static class EmptyChildModule {
+  }
+
+  @Test public void concurrentValidatePlusAndGetLinkOnce() throws Exception {
+    StressHarness harness = new StressHarness(8);
+    harness.run(200, new StressHarness.RoundFactory<Object>() {
+      @Override public StressHarness.Round<Object> newRound() {
+        final CountingSingletonModule module = new CountingSingletonModule();
+        final ObjectGraph graph = ObjectGraph.createWith(new TestingLoader(), module);
+        final List<Callable<Object>> actors = new ArrayList<Callable<Object>>();
+        for (int i = 0; i < 8; i++) {
+          switch (i % 3) {
+            case 0:
+              actors.add(new Callable<Object>() {
+                @Override public Object call() {
+                  graph.validate();
+                  return graph.get(SingletonEntryPoint.class).object;
+                }
+              });
+              break;
+            case 1:
+              actors.add(new Callable<Object>() {
+                @Override public Object call() {
+                  return graph.plus(new EmptyChildModule()).get(SingletonEntryPoint.class).object;
+                }
+              });
+              break;
+            default:
+              actors.add(new Callable<Object>() {
+                @Override public Object call() {
+                  return graph.inject(new SingletonEntryPoint()).object;
+                }
+              });
+              break;
+          }
+        }
+        return new StressHarness.Round<Object>() {
+          @Override public List<Callable<Object>> actors() {
+            return actors;
+          }
+
+          @Override public void verify(List<Object> observed) {
+            assertThat(module.count.get()).named("singletons created").isEqualTo(1);
+            for (Object object : observed) {
+              assertThat(object).isSameAs(observed.get(0));
+            }
+          }
+        };
+      }
+    });
+  }
+
   @Test public void concurrentLazyAccess() throws Exception {
     final List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
     final ObjectGraph graph =
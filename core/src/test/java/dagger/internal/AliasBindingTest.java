@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.internal;
+
+import java.util.Map;
+import javax.inject.Inject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public final class AliasBindingTest {
+  private final Linker linker = new Linker(null, new TestingLoader(), new ThrowingErrorHandler());
+
+  interface Greeter {
+  }
+
+  static class RealGreeter implements Greeter {
+    @Inject RealGreeter() {
+    }
+  }
+
+  @Test public void requestBindingReturnsTheTarget() {
+    install(alias(Greeter.class.getName(), RealGreeter.class.getName()));
+    synchronized (linker) {
+      assertThat(linker.requestBinding(Greeter.class.getName(), "test", loader())).isNull();
+      linker.linkRequested();
+      Binding<?> binding = linker.requestBinding(Greeter.class.getName(), "test", loader());
+      assertThat(binding.provideKey).isEqualTo(RealGreeter.class.getName());
+      assertThat(binding.isLinked()).isTrue();
+      assertThat(binding.get()).isInstanceOf(RealGreeter.class);
+    }
+  }
+
+  @Test public void linkAllReplacesAliases() {
+    install(alias("a", "b"), alias("b", RealGreeter.class.getName()));
+    Map<String, Binding<?>> bindings;
+    synchronized (linker) {
+      bindings = linker.linkAll();
+    }
+    Binding<?> target = bindings.get(RealGreeter.class.getName());
+    assertThat(bindings.get("a")).isSameAs(target);
+    assertThat(bindings.get("b")).isSameAs(target);
+  }
+
+  @Test public void aliasOfItselfFails() {
+    install(alias("a", "b"), alias("b", "a"));
+    synchronized (linker) {
+      try {
+        linker.linkAll();
+        fail();
+      } catch (IllegalStateException expected) {
+        assertThat(expected.getMessage()).contains("Alias cycle");
+      }
+    }
+  }
+
+  private void install(AliasBinding... aliases) {
+    BindingsGroup group = new BindingsGroup() {
+      @Override public Binding<?> contributeSetBinding(String key, SetBinding<?> value) {
+        throw new UnsupportedOperationException();
+      }
+    };
+    for (AliasBinding alias : aliases) {
+      group.contributeProvidesBinding(alias.provideKey, alias);
+    }
+    linker.installBindings(group);
+  }
+
+  private static AliasBinding alias(String key, String targetKey) {
+    return new AliasBinding(key, targetKey, "TestModule", "alias", loader());
+  }
+
+  private static ClassLoader loader() {
+    return AliasBindingTest.class.getClassLoader();
+  }
+}
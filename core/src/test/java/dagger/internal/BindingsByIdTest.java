@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.internal;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(JUnit4.class)
+public final class BindingsByIdTest {
+  private final BindingsById bindings = new BindingsById();
+
+  @Test public void empty() {
+    assertThat(bindings.get(0)).isNull();
+    assertThat(bindings.size()).isEqualTo(0);
+  }
+
+  @Test public void sparseIds() {
+    // A linker only sees some of the process's ids, which can be large.
+    for (int i = 0; i < 1000; i++) {
+      bindings.put(i * 7919, new TestBinding("key" + i));
+    }
+    assertThat(bindings.size()).isEqualTo(1000);
+    for (int i = 0; i < 1000; i++) {
+      assertThat(bindings.get(i * 7919).provideKey).isEqualTo("key" + i);
+      assertThat(bindings.get(i * 7919 + 1)).isNull();
+    }
+  }
+
+  @Test public void putReplaces() {
+    TestBinding second = new TestBinding("second");
+    bindings.put(3, new TestBinding("first"));
+    bindings.put(3, second);
+    assertThat(bindings.get(3)).isSameAs(second);
+    assertThat(bindings.size()).isEqualTo(1);
+  }
+
+  private static final class TestBinding extends Binding<Object> {
+    TestBinding(String key) {
+      super(key, null, false, key);
+    }
+  }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.internal;
+
+import dagger.Lazy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Stress tests for the hand-rolled double-checked initialization in {@code SingletonBinding},
+ * the {@link Lazy} returned by {@link LazyBinding} and {@link Linker#fullyLinkedBindings()}.
+ * Each round races fresh state, and checks that exactly one instance was created and that every
+ * thread saw it fully constructed.
+ */
+@RunWith(JUnit4.class)
+public final class DoubleCheckedInitializationStressTest {
+  private static final int THREAD_COUNT = 8;
+  private static final int ROUNDS = 500;
+
+  private final StressHarness harness = new StressHarness(THREAD_COUNT);
+
+  @Test public void singletonBindingCreatesOneInstance() throws Exception {
+    harness.run(ROUNDS, new StressHarness.RoundFactory<Payload>() {
+      @Override public StressHarness.Round<Payload> newRound() {
+        final CountingBinding counting = new CountingBinding("payload", true);
+        final Binding<Payload> singleton = Linker.scope(counting);
+        return new SingleInstanceRound(counting, harness.copies(new Callable<Payload>() {
+          @Override public Payload call() {
+            return observe(singleton.get());
+          }
+        }));
+      }
+    });
+  }
+
+  @Test public void lazyCreatesOneInstance() throws Exception {
+    harness.run(ROUNDS, new StressHarness.RoundFactory<Payload>() {
+      @Override public StressHarness.Round<Payload> newRound() {
+        CountingBinding counting = new CountingBinding("payload", false);
+        LazyBinding<Payload> lazyBinding =
+            new LazyBinding<Payload>("lazy", "test", getClass().getClassLoader(), "payload");
+        lazyBinding.delegate = counting;
+        final Lazy<Payload> lazy = lazyBinding.get();
+        return new SingleInstanceRound(counting, harness.copies(new Callable<Payload>() {
+          @Override public Payload call() {
+            return observe(lazy.get());
+          }
+        }));
+      }
+    });
+  }
+
+  @Test public void linkedBindingsArePublishedFullyLinked() throws Exception {
+    final int bindingCount = 16;
+    harness.run(ROUNDS, new StressHarness.RoundFactory<Map<String, Binding<?>>>() {
+      @Override public StressHarness.Round<Map<String, Binding<?>>> newRound() {
+        final Linker linker =
+            new Linker(null, new TestingLoader(), new ThrowingErrorHandler());
+        BindingsGroup group = new TestBindingsGroup();
+        for (int i = 0; i < bindingCount; i++) {
+          group.contributeProvidesBinding("key" + i, new CountingBinding("key" + i, false));
+        }
+        linker.installBindings(group);
+
+        final List<Callable<Map<String, Binding<?>>>> actors =
+            new ArrayList<Callable<Map<String, Binding<?>>>>();
+        actors.add(new Callable<Map<String, Binding<?>>>() {
+          @Override public Map<String, Binding<?>> call() {
+            synchronized (linker) {
+              return linker.linkAll();
+            }
+          }
+        });
+        for (int i = 1; i < THREAD_COUNT; i++) {
+          actors.add(new Callable<Map<String, Binding<?>>>() {
+            @Override public Map<String, Binding<?>> call() {
+              Map<String, Binding<?>> published;
+              while ((published = linker.fullyLinkedBindings()) == null) {
+                Thread.yield();
+              }
+              assertFullyLinked(published, bindingCount);
+              return published;
+            }
+          });
+        }
+        return new StressHarness.Round<Map<String, Binding<?>>>() {
+          @Override public List<Callable<Map<String, Binding<?>>>> actors() {
+            return actors;
+          }
+
+          @Override public void verify(List<Map<String, Binding<?>>> observed) {
+            for (Map<String, Binding<?>> published : observed) {
+              assertThat(published).isSameAs(observed.get(0));
+            }
+          }
+        };
+      }
+    });
+  }
+
+  /** Checks {@code payload} on the racing thread; reads after the round prove nothing. */
+  private static Payload observe(Payload payload) {
+    assertThat(payload.isFullyConstructed()).named("fully constructed").isTrue();
+    return payload;
+  }
+
+  private static void assertFullyLinked(Map<String, Binding<?>> bindings, int expectedSize) {
+    assertThat(bindings.size()).isEqualTo(expectedSize);
+    for (Binding<?> binding : bindings.values()) {
+      assertThat(binding.isLinked()).isTrue();
+      assertThat(((CountingBinding) binding).attached).isTrue();
+    }
+  }
+
+  /** Verifies that the actors all observed the one and only instance, fully constructed. */
+  private static final class SingleInstanceRound implements StressHarness.Round<Payload> {
+    private final CountingBinding counting;
+    private final List<Callable<Payload>> actors;
+
+    SingleInstanceRound(CountingBinding counting, List<Callable<Payload>> actors) {
+      this.counting = counting;
+      this.actors = actors;
+    }
+
+    @Override public List<Callable<Payload>> actors() {
+      return actors;
+    }
+
+    @Override public void verify(List<Payload> observed) {
+      assertThat(counting.created.get()).named("instances created").isEqualTo(1);
+      Payload first = observed.get(0);
+      for (Payload payload : observed) {
+        assertThat(payload).isSameAs(first);
+      }
+    }
+  }
+
+  /**
+   * An object whose fields are deliberately non-final, so that only a correct happens-before
+   * edge guarantees another thread sees them initialized.
+   */
+  static final class Payload {
+    int number;
+    String string;
+    long[] longs;
+
+    Payload() {
+      number = 42;
+      string = "forty-two";
+      longs = new long[] { 4L, 2L };
+    }
+
+    boolean isFullyConstructed() {
+      return number == 42
+          && "forty-two".equals(string)
+          && longs != null && longs.length == 2 && longs[0] == 4L && longs[1] == 2L;
+    }
+  }
+
+  private static final class CountingBinding extends ProvidesBinding<Payload> {
+    final AtomicInteger created = new AtomicInteger();
+    boolean attached;
+
+    CountingBinding(String key, boolean singleton) {
+      super(key, singleton, "TestModule", "provide");
+    }
+
+    @Override public void attach(Linker linker) {
+      attached = true;
+    }
+
+    @Override public Payload get() {
+      created.incrementAndGet();
+      return new Payload();
+    }
+  }
+
+  private static final class TestBindingsGroup extends BindingsGroup {
+    @Override public Binding<?> contributeSetBinding(String key, SetBinding<?> value) {
+      return put(key, value);
+    }
+  }
+}
@@ -19,12 +19,16 @@ package dagger.internal;
 import dagger.Module;
 import dagger.ObjectGraph;
 import dagger.Provides;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import javax.inject.Inject;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
 import static com.google.common.truth.Truth.assertThat;
+import static dagger.internal.loaders.GeneratedAdapters.GRAPH_ADAPTER_SUFFIX;
 
 /**
  * A test case to deal with fall-back to reflection where the concrete type has been generated
@@ -54,4 +58,52 @@ public final class FailoverLoaderTest {
     ObjectGraph.create(new TestModule()).inject(entryPoint);
     assertThat(entryPoint.a).isEqualTo("a");
   }
+
+  @Test public void missingGraphAdapterIsLookedUpOnce() throws ClassNotFoundException {
+    CountingClassLoader classLoader = new CountingClassLoader();
+    Class<?> module = classLoader.loadClass(TestModule.class.getName());
+    new FailoverLoader(module);
+    new FailoverLoader(module);
+    assertThat(classLoader.graphAdapterLookups).isEqualTo(1);
+  }
+
+  /** Defines its own copy of {@link TestModule}, and counts lookups of graph adapters. */
+  static final class CountingClassLoader extends ClassLoader {
+    int graphAdapterLookups;
+
+    CountingClassLoader() {
+      super(FailoverLoaderTest.class.getClassLoader());
+    }
+
+    @Override protected synchronized Class<?> loadClass(String name, boolean resolve)
+        throws ClassNotFoundException {
+      if (name.endsWith(GRAPH_ADAPTER_SUFFIX)) {
+        graphAdapterLookups++;
+      }
+      if (!name.equals(TestModule.class.getName())) {
+        return super.loadClass(name, resolve);
+      }
+      Class<?> result = findLoadedClass(name);
+      if (result == null) {
+        byte[] bytes = readClass(name);
+        result = defineClass(name, bytes, 0, bytes.length);
+      }
+      return result;
+    }
+
+    private byte[] readClass(String name) throws ClassNotFoundException {
+      InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class");
+      try {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        for (int count; (count = in.read(buffer)) != -1; ) {
+          out.write(buffer, 0, count);
+        }
+        in.close();
+        return out.toByteArray();
+      } catch (IOException e) {
+        throw new ClassNotFoundException(name, e);
+      }
+    }
+  }
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.internal;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public final class FrozenBindingsTest {
+  @Test public void empty() {
+    FrozenBindings frozen = new FrozenBindings(new HashMap<String, Binding<?>>());
+    assertThat(frozen).isEmpty();
+    assertThat(frozen.get("a")).isNull();
+    assertThat(frozen.containsKey("a")).isFalse();
+  }
+
+  @Test public void equalToTheMapItWasFrozenFrom() {
+    Map<String, Binding<?>> bindings = new HashMap<String, Binding<?>>();
+    for (int i = 0; i < 1000; i++) {
+      bindings.put("key" + i, new TestBinding("key" + i));
+    }
+    FrozenBindings frozen = new FrozenBindings(bindings);
+    assertThat(frozen).isEqualTo(bindings);
+    assertThat(frozen.size()).isEqualTo(1000);
+    for (int i = 0; i < 1000; i++) {
+      // A different but equal instance of the key still finds its binding.
+      assertThat(frozen.get(new String("key" + i))).isSameAs(bindings.get("key" + i));
+    }
+    assertThat(frozen.get("key1000")).isNull();
+    assertThat(frozen.get(1)).isNull();
+  }
+
+  @Test public void collidingKeysAreAllFound() {
+    // "Aa" and "BB" have the same hash code, and so do all of their concatenations.
+    Map<String, Binding<?>> bindings = new HashMap<String, Binding<?>>();
+    for (String key : new String[] { "AaAa", "AaBB", "BBAa", "BBBB" }) {
+      bindings.put(key, new TestBinding(key));
+    }
+    FrozenBindings frozen = new FrozenBindings(bindings);
+    for (Map.Entry<String, Binding<?>> entry : bindings.entrySet()) {
+      assertThat(frozen.get(entry.getKey())).isSameAs(entry.getValue());
+    }
+    assertThat(frozen.get("AaAaAa")).isNull();
+  }
+
+  @Test public void readOnly() {
+    FrozenBindings frozen = new FrozenBindings(new HashMap<String, Binding<?>>());
+    try {
+      frozen.put("a", new TestBinding("a"));
+      fail();
+    } catch (UnsupportedOperationException expected) {
+    }
+  }
+
+  private static final class TestBinding extends Binding<Object> {
+    TestBinding(String key) {
+      super(key, null, false, key);
+    }
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.internal;
+
+import dagger.Module;
+import dagger.ObjectGraph;
+import dagger.Provides;
+import dagger.internal.loaders.ReflectiveAtInjectBinding;
+import java.util.ArrayList;
+import java.util.List;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Checks that a graph seeded with a single module creates its adapters through that module's
+ * {@link GraphAdapter}, and that every other graph still loads them by name. An extension graph's
+ * adapter installs its {@code @Inject} bindings when the extension is created.
+ */
+@RunWith(JUnit4.class)
+public final class GraphAdapterTest {
+  static final List<String> created = new ArrayList<String>();
+
+  @Before public void setUp() {
+    created.clear();
+  }
+
+  @Module(injects = EntryPoint.class)
+  static class TestModule {
+    @Provides String aString() { return "a"; }
+  }
+
+  @Module
+  static class OtherModule {
+  }
+
+  static class EntryPoint {
+    @Inject String a;
+  }
+
+  /** Reflective module adapters, used when adapters are loaded by name. */
+  static final class TestModule$$ModuleAdapter extends TestingModuleAdapter<TestModule> {
+    public TestModule$$ModuleAdapter() {
+      super(TestModule.class, TestModule.class.getAnnotation(Module.class));
+    }
+  }
+
+  static final class OtherModule$$ModuleAdapter extends TestingModuleAdapter<OtherModule> {
+    public OtherModule$$ModuleAdapter() {
+      super(OtherModule.class, OtherModule.class.getAnnotation(Module.class));
+    }
+  }
+
+  /** Stands in for the graph adapter that would be generated for {@link TestModule}. */
+  static final class TestModule$$GraphAdapter extends GraphAdapter {
+    public TestModule$$GraphAdapter() {
+      super(new String[] { TestModule.class.getName() },
+          new String[] { EntryPoint.class.getName() },
+          new String[0]);
+    }
+
+    @Override protected ModuleAdapter<?> newModuleAdapter(int index) {
+      created.add("module " + index);
+      return new TestingModuleAdapter<TestModule>(
+          TestModule.class, TestModule.class.getAnnotation(Module.class));
+    }
+
+    @Override protected Binding<?> newInjectAdapter(int index) {
+      created.add("inject " + index);
+      return ReflectiveAtInjectBinding.create(EntryPoint.class, true);
+    }
+
+    @Override protected StaticInjection newStaticInjection(int index) {
+      throw new AssertionError(index);
+    }
+  }
+
+  @Singleton
+  static class Shared {
+    @Inject Shared() { }
+  }
+
+  static class ExtensionEntryPoint {
+    @Inject Shared shared;
+  }
+
+  @Module(injects = Shared.class)
+  static class ParentModule {
+  }
+
+  @Module(addsTo = ParentModule.class, injects = ExtensionEntryPoint.class)
+  static class ExtensionModule {
+  }
+
+  static final class ParentModule$$ModuleAdapter extends TestingModuleAdapter<ParentModule> {
+    public ParentModule$$ModuleAdapter() {
+      super(ParentModule.class, ParentModule.class.getAnnotation(Module.class));
+    }
+  }
+
+  /**
+   * Stands in for the graph adapter that would be generated for {@link ExtensionModule}. It also
+   * lists {@link Shared}, as if the extended graph had been built without it.
+   */
+  static final class ExtensionModule$$GraphAdapter extends GraphAdapter {
+    public ExtensionModule$$GraphAdapter() {
+      super(new String[] { ExtensionModule.class.getName() },
+          new String[] { ExtensionEntryPoint.class.getName(), Shared.class.getName() },
+          new String[0],
+          true);
+    }
+
+    @Override protected ModuleAdapter<?> newModuleAdapter(int index) {
+      created.add("extension module " + index);
+      return new TestingModuleAdapter<ExtensionModule>(
+          ExtensionModule.class, ExtensionModule.class.getAnnotation(Module.class));
+    }
+
+    @Override protected Binding<?> newInjectAdapter(int index) {
+      created.add("extension inject " + index);
+      Class<?> type = index == 0 ? ExtensionEntryPoint.class : Shared.class;
+      return ReflectiveAtInjectBinding.create(type, true);
+    }
+
+    @Override protected StaticInjection newStaticInjection(int index) {
+      throw new AssertionError(index);
+    }
+  }
+
+  @Test public void singleModuleGraphUsesGraphAdapter() {
+    EntryPoint entryPoint = new EntryPoint();
+    ObjectGraph.create(new TestModule()).inject(entryPoint);
+    assertThat(entryPoint.a).isEqualTo("a");
+    assertThat(created).containsExactly("module 0", "inject 0");
+  }
+
+  @Test public void moduleClassSeedUsesGraphAdapter() {
+    ObjectGraph.create(TestModule.class).get(EntryPoint.class);
+    assertThat(created).containsExactly("module 0", "inject 0");
+  }
+
+  @Test public void multipleModuleGraphLoadsAdaptersByName() {
+    EntryPoint entryPoint = new EntryPoint();
+    ObjectGraph.create(new TestModule(), new OtherModule()).inject(entryPoint);
+    assertThat(entryPoint.a).isEqualTo("a");
+    assertThat(created).isEmpty();
+  }
+
+  @Test public void missingNamesAreLoadedAsUsual() {
+    GraphAdapter adapter = new TestModule$$GraphAdapter();
+    assertThat(adapter.getModuleAdapter(OtherModule.class.getName())).isNull();
+    assertThat(adapter.getAtInjectBinding(TestModule.class.getName())).isNull();
+    assertThat(adapter.getStaticInjection(EntryPoint.class.getName())).isNull();
+    assertThat(created).isEmpty();
+  }
+
+  @Test public void extensionInstallsItsBindingsWhenCreated() {
+    ObjectGraph root = ObjectGraph.create(ParentModule.class);
+    Shared shared = root.get(Shared.class);
+    ObjectGraph extension = root.plus(new ExtensionModule());
+    assertThat(created)
+        .containsExactly("extension module 0", "extension inject 0", "extension inject 1");
+
+    // The extended graph's binding is used rather than the extension's own.
+    assertThat(extension.get(ExtensionEntryPoint.class).shared).isSameAs(shared);
+    assertThat(created).hasSize(3);
+  }
+
+  @Test public void rootGraphAdapterIsNotAnExtension() {
+    assertThat(new TestModule$$GraphAdapter().newExtensionBindings()).isEmpty();
+    assertThat(created).isEmpty();
+  }
+}
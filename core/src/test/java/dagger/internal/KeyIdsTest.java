@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.internal;
+
+import javax.inject.Inject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(JUnit4.class)
+public final class KeyIdsTest {
+  static class Injectable {
+    @Inject Injectable() {
+    }
+  }
+
+  @Test public void idsAreStable() {
+    int id = KeyIds.of("java.lang.String");
+    assertThat(KeyIds.of("java.lang.String")).isEqualTo(id);
+    assertThat(KeyIds.key(id)).isEqualTo("java.lang.String");
+    int[] ids = KeyIds.ofAll("java.lang.Integer", "java.lang.String");
+    assertThat(ids.length).isEqualTo(2);
+    assertThat(ids[0]).isEqualTo(KeyIds.of("java.lang.Integer"));
+    assertThat(ids[1]).isEqualTo(id);
+  }
+
+  @Test public void manyKeys() {
+    for (int i = 0; i < 1000; i++) {
+      assertThat(KeyIds.key(KeyIds.of("key" + i))).isEqualTo("key" + i);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unknownId() {
+    KeyIds.key(Integer.MAX_VALUE);
+  }
+
+  @Test public void requestByIdMatchesRequestByKey() {
+    Linker linker = new Linker(null, new TestingLoader(), new ThrowingErrorHandler());
+    String key = Keys.get(Injectable.class);
+    int id = KeyIds.of(key);
+    synchronized (linker) {
+      assertThat(linker.requestBinding(id, "test", getClass().getClassLoader())).isNull();
+      linker.linkRequested();
+      Binding<?> binding = linker.requestBinding(id, "test", getClass().getClassLoader());
+      assertThat(binding).isNotNull();
+      assertThat(binding.isLinked()).isTrue();
+      assertThat(linker.requestBinding(key, "test", getClass().getClassLoader()))
+          .isSameAs(binding);
+      assertThat(linker.requestBinding(id, "test", getClass().getClassLoader()))
+          .isSameAs(binding);
+    }
+  }
+}
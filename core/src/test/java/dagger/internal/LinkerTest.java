@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(JUnit4.class)
+public final class LinkerTest {
+  private final GraphLoader loader = new GraphLoader();
+  private final Linker linker = new Linker(null, loader, new ThrowingErrorHandler());
+
+  @Test public void missingDependenciesAreCreatedOnce() {
+    loader.add("a", "b", "c", "d");
+    loader.add("b", "c", "d");
+    loader.add("c", "d");
+    loader.add("d");
+    request("a");
+    synchronized (linker) {
+      linker.linkRequested();
+    }
+    assertThat(loader.created).containsExactly("a", "b", "c", "d");
+  }
+
+  @Test public void bindingIsAttachedOnceItsDependenciesExist() {
+    loader.add("a", "b", "c");
+    loader.add("b");
+    loader.add("c");
+    request("a");
+    synchronized (linker) {
+      linker.linkRequested();
+    }
+    // Once to find its missing dependencies, and once when both have been created.
+    assertThat(loader.bindings.get("a").attachCount).isEqualTo(2);
+    assertThat(loader.bindings.get("b").attachCount).isEqualTo(1);
+    assertThat(loader.bindings.get("c").attachCount).isEqualTo(1);
+  }
+
+  @Test public void bindingRequestedManyTimesIsAttachedOnce() {
+    loader.add("shared");
+    for (int i = 0; i < 10; i++) {
+      loader.add("user" + i, "shared");
+    }
+    synchronized (linker) {
+      for (int i = 0; i < 10; i++) {
+        linker.requestBinding("user" + i, "test", getClass().getClassLoader());
+      }
+      linker.linkRequested();
+      for (int i = 0; i < 10; i++) {
+        assertThat(linker.requestBinding("user" + i, "test", getClass().getClassLoader())
+            .isLinked()).isTrue();
+      }
+    }
+    assertThat(loader.bindings.get("shared").attachCount).isEqualTo(1);
+  }
+
+  @Test public void leanLinkerReleasesRequiredByAfterLinkAll() {
+    loader.add("a", "b");
+    loader.add("b");
+    linker.setLean(true);
+    request("a");
+    Map<String, Binding<?>> linked;
+    synchronized (linker) {
+      linked = linker.linkAll();
+    }
+    assertThat(linked.keySet()).containsExactly("a", "b");
+    for (Binding<?> binding : linked.values()) {
+      assertThat(binding.isLinked()).isTrue();
+      assertThat(binding.requiredBy).isNull();
+    }
+  }
+
+  @Test public void leanLinkerStillRequestsByIdAfterLinkAll() {
+    loader.add("lean.a", "lean.b");
+    loader.add("lean.b");
+    linker.setLean(true);
+    int id = KeyIds.of("lean.a");
+    synchronized (linker) {
+      assertThat(linker.requestBinding(id, "test", getClass().getClassLoader())).isNull();
+      linker.linkAll();
+      assertThat(linker.requestBinding(id, "test", getClass().getClassLoader()))
+          .isSameAs(linker.linkedBinding("lean.a"));
+    }
+  }
+
+  @Test public void defaultLinkerKeepsRequiredBy() {
+    loader.add("a", "b");
+    loader.add("b");
+    request("a");
+    Map<String, Binding<?>> linked;
+    synchronized (linker) {
+      linked = linker.linkAll();
+    }
+    for (Map.Entry<String, Binding<?>> entry : linked.entrySet()) {
+      assertThat(entry.getValue().requiredBy).isEqualTo(entry.getKey());
+    }
+  }
+
+  @Test public void bindingsRequestedAfterLinkAllReuseFrozenOnes() {
+    loader.add("a", "b");
+    loader.add("b");
+    loader.add("c", "b");
+    request("a");
+    synchronized (linker) {
+      linker.linkAll();
+      Binding<?> c = linker.requestBinding("c", "test", getClass().getClassLoader());
+      assertThat(c).isNull(); // Deferred until linked.
+      linker.linkRequested();
+      assertThat(linker.requestBinding("a", "test", getClass().getClassLoader()))
+          .isSameAs(linker.linkedBinding("a"));
+      assertThat(linker.requestBinding("c", "test", getClass().getClassLoader()).isLinked())
+          .isTrue();
+    }
+    assertThat(loader.created).containsExactly("a", "b", "c");
+    assertThat(linker.linkedBinding("c")).isNull();
+  }
+
+  private void request(String key) {
+    synchronized (linker) {
+      linker.requestBinding(key, "test", getClass().getClassLoader());
+    }
+  }
+
+  /** Creates bindings for keys added with their dependencies, recording each one it creates. */
+  static final class GraphLoader extends Loader {
+    final Map<String, List<String>> graph = new LinkedHashMap<String, List<String>>();
+    final Map<String, CountingBinding> bindings = new LinkedHashMap<String, CountingBinding>();
+    final List<String> created = new ArrayList<String>();
+
+    void add(String key, String... dependencies) {
+      graph.put(key, Arrays.asList(dependencies));
+    }
+
+    @Override public Binding<?> getAtInjectBinding(
+        String key, String className, ClassLoader classLoader, boolean mustHaveInjections) {
+      created.add(key);
+      CountingBinding binding = new CountingBinding(key, graph.get(key));
+      bindings.put(key, binding);
+      return binding;
+    }
+
+    @Override public <T> ModuleAdapter<T> getModuleAdapter(Class<T> moduleClass) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override public StaticInjection getStaticInjection(Class<?> injectedClass) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  static final class CountingBinding extends Binding<Object> {
+    final List<String> dependencies;
+    int attachCount;
+
+    CountingBinding(String key, List<String> dependencies) {
+      super(key, null, false, key);
+      this.dependencies = dependencies;
+    }
+
+    @Override public void attach(Linker linker) {
+      attachCount++;
+      for (String dependency : dependencies) {
+        linker.requestBinding(dependency, provideKey, getClass().getClassLoader());
+      }
+    }
+  }
+}
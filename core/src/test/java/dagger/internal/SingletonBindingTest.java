@@ -22,6 +22,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
 import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
 
 @RunWith(JUnit4.class)
 public final class SingletonBindingTest {
@@ -68,6 +69,22 @@ public final class SingletonBindingTest {
     assertThat(singletonBinding.isCycleFree()).isTrue();
   }
 
+  @Test public void selfScopedBindingIsNotWrapped() {
+    StringBinding selfScoped = new StringBinding();
+    selfScoped.setSelfScoped();
+    assertThat(Linker.scope(selfScoped)).isSameAs(selfScoped);
+  }
+
+  @Test public void onlySingletonsCanBeSelfScoped() {
+    Binding<String> unscoped = new Binding<String>("dummy", "dummy", false, "dummy") {
+    };
+    try {
+      unscoped.setSelfScoped();
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
   private static class StringBinding extends Binding<String> {
     private StringBinding() {
       super("dummy", "dummy", true, "dummy"); // 3rd arg true => singleton
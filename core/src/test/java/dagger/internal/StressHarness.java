@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A small jcstress-style harness for tests. Each round releases a set of actors at the same
+ * instant from a common barrier so that racy initialization paths are hit under contention, and
+ * returns what every actor observed so the caller can check single-instantiation and safe
+ * publication. Running many short rounds against fresh state finds more interleavings than one
+ * long round against shared state.
+ */
+public final class StressHarness {
+  private static final long TIMEOUT_SECONDS = 10;
+
+  /** Creates the per-round state and the actors racing against it. */
+  public interface Round<T> {
+    /** Returns the actors for one round. Called once per round on the test thread. */
+    List<Callable<T>> actors();
+
+    /** Checks everything the actors observed. Called after all of them have completed. */
+    void verify(List<T> observed) throws Exception;
+  }
+
+  private final int threadCount;
+
+  public StressHarness(int threadCount) {
+    if (threadCount < 2) {
+      throw new IllegalArgumentException("threadCount < 2: " + threadCount);
+    }
+    this.threadCount = threadCount;
+  }
+
+  public int threadCount() {
+    return threadCount;
+  }
+
+  /** Runs {@code rounds} rounds, each created by {@code round}, and verifies each of them. */
+  public <T> void run(int rounds, RoundFactory<T> round) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    try {
+      for (int i = 0; i < rounds; i++) {
+        Round<T> r = round.newRound();
+        r.verify(runRound(executor, r.actors()));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /** Creates fresh state for every round. */
+  public interface RoundFactory<T> {
+    Round<T> newRound() throws Exception;
+  }
+
+  /**
+   * Returns a list of {@code threadCount} copies of {@code actor}, for rounds where every thread
+   * does the same thing.
+   */
+  public <T> List<Callable<T>> copies(Callable<T> actor) {
+    List<Callable<T>> result = new ArrayList<Callable<T>>(threadCount);
+    for (int i = 0; i < threadCount; i++) {
+      result.add(actor);
+    }
+    return result;
+  }
+
+  private <T> List<T> runRound(ExecutorService executor, List<Callable<T>> actors)
+      throws Exception {
+    if (actors.size() > threadCount) {
+      throw new IllegalArgumentException(
+          "More actors than threads: " + actors.size() + " > " + threadCount);
+    }
+    final CyclicBarrier barrier = new CyclicBarrier(actors.size());
+    List<Future<T>> futures = new ArrayList<Future<T>>(actors.size());
+    for (final Callable<T> actor : actors) {
+      futures.add(executor.submit(new Callable<T>() {
+        @Override public T call() throws Exception {
+          barrier.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+          return actor.call();
+        }
+      }));
+    }
+    List<T> observed = new ArrayList<T>(actors.size());
+    for (Future<T> future : futures) {
+      try {
+        observed.add(future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        if (cause instanceof Exception) {
+          throw (Exception) cause;
+        }
+        throw e;
+      }
+    }
+    return observed;
+  }
+}
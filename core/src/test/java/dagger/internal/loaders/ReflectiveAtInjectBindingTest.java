@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.internal.loaders;
+
+import dagger.Assisted;
+import dagger.internal.Binding;
+import dagger.internal.Binding.InvalidBindingException;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public final class ReflectiveAtInjectBindingTest {
+  static class Injectable {
+    @Inject Injectable() {}
+  }
+
+  static class NoInjections {
+  }
+
+  @Singleton static class SingletonWithoutConstructor {
+  }
+
+  static class AssistedConstruction {
+    @Inject AssistedConstruction(Injectable injectable, @Assisted String name) {}
+  }
+
+  @Test public void assistedConstructorIsRejected() {
+    try {
+      ReflectiveAtInjectBinding.create(AssistedConstruction.class, true);
+      fail();
+    } catch (InvalidBindingException expected) {
+      assertThat(expected.getMessage()).contains("@AssistedFactory");
+    }
+  }
+
+  @Test public void bindingsForTheSameClassAreIndependent() {
+    Binding<Injectable> first = ReflectiveAtInjectBinding.create(Injectable.class, true);
+    Binding<Injectable> second = ReflectiveAtInjectBinding.create(Injectable.class, true);
+    assertThat(second).isNotSameAs(first);
+    assertThat(second.provideKey).isEqualTo(first.provideKey);
+    assertThat(second.get()).isNotSameAs(first.get());
+  }
+
+  @Test public void mustHaveInjectionsIsCheckedEveryTime() {
+    assertThat(ReflectiveAtInjectBinding.create(NoInjections.class, false).provideKey).isNull();
+    try {
+      ReflectiveAtInjectBinding.create(NoInjections.class, true);
+      fail();
+    } catch (InvalidBindingException expected) {
+    }
+    assertThat(ReflectiveAtInjectBinding.create(NoInjections.class, false).membersKey)
+        .isEqualTo("members/" + NoInjections.class.getName());
+  }
+
+  @Test public void singletonWithoutConstructorFailsEveryTime() {
+    for (int i = 0; i < 2; i++) {
+      try {
+        ReflectiveAtInjectBinding.create(SingletonWithoutConstructor.class, false);
+        fail();
+      } catch (IllegalArgumentException expected) {
+        assertThat(expected.getMessage()).contains("No injectable constructor");
+      }
+    }
+  }
+}